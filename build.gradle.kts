@@ -235,11 +235,14 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     // Auskommentieren fuer Beispiel 1
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.flywaydb:flyway-core")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.security:spring-security-crypto")
     implementation("org.springframework.boot:spring-boot-starter-mail")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("io.micrometer:micrometer-registry-prometheus")
+    implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     implementation(libs.jfiglet)
 
     compileOnly(libs.lombok)
@@ -249,7 +252,8 @@ dependencies {
     // QueryDSL unterstutzt nur JPA 2.2 und Hibernate 5.6
     annotationProcessor(libs.hibernateJpamodelgen)
 
-    runtimeOnly("org.postgresql:postgresql")
+    // CopyManager fuer den Import mit COPY
+    implementation("org.postgresql:postgresql")
     runtimeOnly("mysql:mysql-connector-java")
     runtimeOnly("com.oracle.database.jdbc:ojdbc11")
     runtimeOnly(libs.jansi)
@@ -0,0 +1,104 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Vergleich von zufaelligen UUIDs (Version 4, bisher durch @GeneratedValue) mit zeitlich sortierten UUIDs
+-- (Version 7, UuidV7Generator) beim Einfuegen in eine Tabelle mit mehreren Millionen Zeilen: Dauer, erzeugtes WAL
+-- und Groesse der Indexe. Die Indexe fuer email und name sind in beiden Faellen gleich gross, weil ihre Werte
+-- unabhaengig von der ID in zufaelliger Reihenfolge eingefuegt werden; profitieren koennen nur der Primaerschluessel
+-- und Indexe, die mit aufsteigenden Werten beginnen, z.B. (aktualisiert, id) fuer die Delta-Synchronisation.
+--
+-- (1) docker compose exec postgres bash
+-- (2) psql --dbname=verein --username=verein --file=/sql/uuid-benchmark.sql [--set=anzahl=10000000]
+--
+-- Aussagekraeftig ist das Ergebnis erst, wenn der Primaerschluessel mit zufaelligen UUIDs deutlich groesser als
+-- shared_buffers ist. Vor jedem Lauf ggf. als Superuser CHECKPOINT ausfuehren, damit die Full Page Writes
+-- vergleichbar sind.
+
+\if :{?anzahl}
+\else
+    \set anzahl 5000000
+\endif
+\set batch 10000
+\timing on
+
+-- UUID der Version 7: die ersten 48 Bit von gen_random_uuid() durch den Zeitstempel in Millisekunden ersetzen und
+-- die Version von 4 (0100) auf 7 (0111) setzen
+CREATE OR REPLACE FUNCTION uuid_bench_v7() RETURNS uuid AS $$
+    SELECT encode(
+        set_bit(
+            set_bit(
+                overlay(
+                    uuid_send(gen_random_uuid())
+                    PLACING substring(int8send((extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                    FROM 1 FOR 6
+                ),
+                52, 1
+            ),
+            53, 1
+        ),
+        'hex'
+    )::uuid;
+$$ LANGUAGE sql VOLATILE;
+
+-- Einfuegen in Transaktionen mit jeweils "batch" Zeilen wie beim Neuanlegen vieler Vereine
+CREATE OR REPLACE PROCEDURE uuid_bench_insert(tabelle text, anzahl integer, batch integer, v7 boolean) AS $$
+BEGIN
+    FOR start IN 0 .. anzahl - 1 BY batch LOOP
+        EXECUTE format(
+            'INSERT INTO %I (id, email, name) '
+            'SELECT %s, ''verein'' || n || ''@acme.de'', ''Verein '' || md5(n::text) '
+            'FROM generate_series($1, $2) n',
+            tabelle,
+            CASE WHEN v7 THEN 'uuid_bench_v7()' ELSE 'gen_random_uuid()' END
+        ) USING start, least(start + batch, anzahl) - 1;
+        COMMIT;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TABLE IF EXISTS uuid_bench_v4;
+DROP TABLE IF EXISTS uuid_bench_v7;
+-- wie die Tabelle verein: Primaerschluessel, Unique Constraint fuer email und Index fuer name
+CREATE TABLE uuid_bench_v4 (id uuid PRIMARY KEY, email text NOT NULL UNIQUE, name text NOT NULL);
+CREATE INDEX uuid_bench_v4_name_idx ON uuid_bench_v4(name);
+CREATE TABLE uuid_bench_v7 (LIKE uuid_bench_v4 INCLUDING ALL);
+
+-- Version 4
+SELECT pg_current_wal_lsn() AS wal_start \gset
+CALL uuid_bench_insert('uuid_bench_v4', :anzahl, :batch, false);
+SELECT pg_size_pretty(pg_wal_lsn_diff(pg_current_wal_lsn(), :'wal_start')) AS wal_v4 \gset
+
+-- Version 7
+SELECT pg_current_wal_lsn() AS wal_start \gset
+CALL uuid_bench_insert('uuid_bench_v7', :anzahl, :batch, true);
+SELECT pg_size_pretty(pg_wal_lsn_diff(pg_current_wal_lsn(), :'wal_start')) AS wal_v7 \gset
+
+\timing off
+SELECT :'wal_v4' AS wal_v4, :'wal_v7' AS wal_v7;
+
+SELECT   c.relname AS relation,
+         pg_size_pretty(pg_relation_size(c.oid)) AS groesse
+FROM     pg_class c
+WHERE    c.relname LIKE 'uuid\_bench\_v_%'
+ORDER BY c.relname;
+
+-- Fragmentierung des Primaerschluessels, falls die Extension pgstattuple installiert ist
+-- SELECT avg_leaf_density, leaf_fragmentation FROM pgstatindex('uuid_bench_v4_pkey');
+-- SELECT avg_leaf_density, leaf_fragmentation FROM pgstatindex('uuid_bench_v7_pkey');
+
+DROP TABLE uuid_bench_v4;
+DROP TABLE uuid_bench_v7;
+DROP PROCEDURE uuid_bench_insert(text, integer, integer, boolean);
+DROP FUNCTION uuid_bench_v7();
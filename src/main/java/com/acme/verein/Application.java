@@ -17,11 +17,16 @@
 package com.acme.verein;
 
 import com.acme.verein.config.AppConfig;
+import com.acme.verein.config.QueryBudgetProperties;
+import com.acme.verein.config.ReplicaProperties;
 import com.acme.verein.config.dev.DevConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Import;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import static com.acme.verein.config.Banner.TEXT;
 import static org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType.HAL;
 import static org.springframework.hateoas.support.WebStack.WEBMVC;
@@ -34,6 +39,9 @@ import static org.springframework.hateoas.support.WebStack.WEBMVC;
 @SpringBootApplication(proxyBeanMethods = false)
 @Import({AppConfig.class, DevConfig.class})
 @EnableHypermediaSupport(type = HAL, stacks = WEBMVC)
+@EnableCaching
+@EnableConfigurationProperties({ReplicaProperties.class, QueryBudgetProperties.class})
+@EnableScheduling
 //@EnableWebSecurity
 //@EnableMethodSecurity
 @SuppressWarnings({"ImplicitSubclassInspection", "ClassUnconnectedToPackage"})
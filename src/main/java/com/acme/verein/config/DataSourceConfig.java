@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import static com.acme.verein.config.ReplicaRoutingDataSource.PRIMARY;
+import static java.sql.Connection.TRANSACTION_READ_COMMITTED;
+
+/**
+ * Konfiguration der DataSource mit Lese-Replikaten gemäß ReplicaProperties. Ohne Replikate wird immer die primäre DB
+ * verwendet.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+interface DataSourceConfig {
+    /**
+     * Bean-Definition für den Connection-Pool der primären DB gemäß "spring.datasource".
+     *
+     * @param properties Die Properties mit dem Präfix "spring.datasource"
+     * @return Connection-Pool mit Hikari
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    default HikariDataSource primaryDataSource(final DataSourceProperties properties) {
+        final var dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(PRIMARY);
+        return dataSource;
+    }
+
+    /**
+     * Bean-Definition für die Verteilung auf die primäre DB und die Lese-Replikate.
+     *
+     * @param primaryDataSource Connection-Pool der primären DB
+     * @param properties Die Properties für die Replikate
+     * @param registry Registry für die Metriken der Connection-Pools und der Verteilung
+     * @return DataSource mit den Connection-Pools der primären DB und der Replikate
+     */
+    @Bean
+    default ReplicaRoutingDataSource routingDataSource(
+        final HikariDataSource primaryDataSource,
+        final ReplicaProperties properties,
+        final MeterRegistry registry
+    ) {
+        return new ReplicaRoutingDataSource(primaryDataSource, properties, registry);
+    }
+
+    /**
+     * Bean-Definition für die DataSource, die von JPA, Flyway usw. verwendet wird. Die Connection wird erst beim
+     * ersten SQL-Befehl geholt, so dass das Flag readOnly der Transaktion dann bekannt ist. Die SQL-Anweisungen werden
+     * für die Metriken pro Request erfasst. Auto-Commit und Isolation Level entsprechen den Defaults von PostgreSQL, so
+     * dass beim Start keine Connection geholt wird, z.B. im Profile "in-memory" ohne DB.
+     *
+     * @param routingDataSource DataSource mit der Verteilung auf die primäre DB und die Replikate
+     * @param budgetProperties Das Budget für die SQL-Anweisungen
+     * @return DataSource mit verzögertem Holen der Connection
+     */
+    @Bean
+    @Primary
+    default DataSource dataSource(
+        final ReplicaRoutingDataSource routingDataSource,
+        final QueryBudgetProperties budgetProperties
+    ) {
+        final var dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(TRANSACTION_READ_COMMITTED);
+        dataSource.setTargetDataSource(new QueryMetricsDataSource(routingDataSource, budgetProperties));
+        return dataSource;
+    }
+}
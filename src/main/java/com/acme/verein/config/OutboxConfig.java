@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import com.acme.verein.service.VereinEventRelay;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Konfiguration für die Outbox mit den Events zu Änderungen an Vereinen. Intervalle und Aufbewahrung werden in
+ * application.yml durch app.outbox festgelegt.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+interface OutboxConfig {
+    /**
+     * Bean-Definition, damit das Relay trotz spring.main.lazy-initialization beim Start erzeugt wird und die Events
+     * mit @Scheduled auch ohne Abonnenten veröffentlicht.
+     *
+     * @return Filter, der VereinEventRelay von der Lazy-Initialisierung ausnimmt
+     */
+    @Bean
+    default LazyInitializationExcludeFilter outboxRelayExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(VereinEventRelay.class);
+    }
+}
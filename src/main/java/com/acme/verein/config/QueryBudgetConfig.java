@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Konfiguration für die Metriken und das Budget der SQL-Anweisungen pro Request gemäß QueryBudgetProperties.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+interface QueryBudgetConfig {
+    /**
+     * Bean-Definition für den Filter, der die SQL-Anweisungen pro Request erfasst und das Budget prüft.
+     *
+     * @param properties Das Budget für die SQL-Anweisungen
+     * @param registry Registry für die Metriken pro Endpoint
+     * @return Filter für alle HTTP-Requests einschließlich GraphQL
+     */
+    @Bean
+    default QueryBudgetFilter queryBudgetFilter(final QueryBudgetProperties properties, final MeterRegistry registry) {
+        return new QueryBudgetFilter(properties, registry);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import lombok.Getter;
+
+/**
+ * Exception, falls ein Request das Budget für SQL-Anweisungen überschreitet und app.query-budget.fail gesetzt ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Getter
+public class QueryBudgetExceededException extends RuntimeException {
+    /**
+     * Der Endpoint, z.B. "GET /rest/{id}".
+     */
+    private final String endpoint;
+
+    QueryBudgetExceededException(final String endpoint, final String grund) {
+        super("Query-Budget fuer " + endpoint + " ueberschritten: " + grund);
+        this.endpoint = endpoint;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter, der pro Request die SQL-Anweisungen aus QueryMetricsDataSource als Metriken mit dem Endpoint als Tag
+ * exportiert und Überschreitungen des Budgets gemäß QueryBudgetProperties zählt bzw. protokolliert. Bei
+ * app.query-budget.fail wirft bereits QueryMetricsDataSource die Exception, solange die Response noch nicht
+ * geschrieben ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RequiredArgsConstructor
+@Slf4j
+final class QueryBudgetFilter extends OncePerRequestFilter {
+    private static final String METRIC_STATEMENTS = "verein.request.sql.statements";
+    private static final String METRIC_ZEIT = "verein.request.sql.zeit";
+    private static final String METRIC_ZEILEN = "verein.request.sql.zeilen";
+    private static final String METRIC_BUDGET = "verein.request.sql.budget";
+    private static final String TAG_ENDPOINT = "endpoint";
+    private static final String TAG_GRUND = "grund";
+
+    private final QueryBudgetProperties properties;
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final FilterChain chain
+    ) throws ServletException, IOException {
+        final var statistik = QueryStatistik.starten(request);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryStatistik.beenden();
+            // erst nach dem Handler ist das Pattern des Endpoints bekannt, z.B. "/rest/{id}" oder "/graphql"
+            final var endpoint = statistik.getEndpoint();
+            exportieren(endpoint, statistik);
+            statistik.verstoesse(properties).forEach(verstoss -> ueberschritten(endpoint, verstoss));
+        }
+    }
+
+    private void exportieren(final String endpoint, final QueryStatistik statistik) {
+        DistributionSummary.builder(METRIC_STATEMENTS)
+            .description("SQL-Anweisungen pro Request")
+            .tag(TAG_ENDPOINT, endpoint)
+            .register(registry)
+            .record(statistik.getAnzahl());
+        DistributionSummary.builder(METRIC_ZEILEN)
+            .description("Gelesene oder geaenderte Zeilen pro Request")
+            .tag(TAG_ENDPOINT, endpoint)
+            .register(registry)
+            .record(statistik.getZeilen());
+        Timer.builder(METRIC_ZEIT)
+            .description("Dauer der SQL-Anweisungen pro Request")
+            .tag(TAG_ENDPOINT, endpoint)
+            .register(registry)
+            .record(statistik.getNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void ueberschritten(final String endpoint, final QueryStatistik.Verstoss verstoss) {
+        Counter.builder(METRIC_BUDGET)
+            .description("Requests, die das Budget fuer SQL-Anweisungen ueberschreiten")
+            .tag(TAG_ENDPOINT, endpoint)
+            .tag(TAG_GRUND, verstoss.grund())
+            .register(registry)
+            .increment();
+        if (!properties.fail()) {
+            log.warn("{}: {}", endpoint, verstoss.meldung());
+        }
+    }
+}
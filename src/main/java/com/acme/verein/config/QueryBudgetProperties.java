@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Properties mit dem Präfix "app.query-budget" für die SQL-Anweisungen, die pro HTTP-Request bzw. GraphQL-Request
+ * an die DB geschickt werden.
+ *
+ * @param maxStatements Maximale Anzahl an SQL-Anweisungen pro Request
+ * @param maxWiederholungen Maximale Anzahl derselben SQL-Anweisung pro Request, ab der ein N+1-Problem vermutet wird
+ * @param slowQuery Dauer, ab der eine SQL-Anweisung als langsam protokolliert wird
+ * @param fail true, falls bei Überschreitung eine Exception geworfen statt nur protokolliert wird, z.B. in Tests
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@ConfigurationProperties(prefix = "app.query-budget")
+public record QueryBudgetProperties(
+    @DefaultValue("20") int maxStatements,
+    @DefaultValue("5") int maxWiederholungen,
+    @DefaultValue("200ms") Duration slowQuery,
+    @DefaultValue("false") boolean fail
+) {
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * DataSource, deren Connections die SQL-Anweisungen mit Dauer und Anzahl der gelesenen bzw. geänderten Zeilen in der
+ * QueryStatistik des aktuellen Requests erfassen. Langsame SQL-Anweisungen werden protokolliert, wobei Literale im
+ * SQL-Text und die Werte der Bind-Parameter nicht ausgegeben werden.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Slf4j
+public final class QueryMetricsDataSource extends DelegatingDataSource {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern ZAHL_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final ClassLoader CLASS_LOADER = QueryMetricsDataSource.class.getClassLoader();
+
+    private final QueryBudgetProperties properties;
+    private final long slowQueryNanos;
+
+    QueryMetricsDataSource(final DataSource target, final QueryBudgetProperties properties) {
+        super(target);
+        this.properties = properties;
+        slowQueryNanos = properties.slowQuery().toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connectionProxy(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return connectionProxy(super.getConnection(username, password));
+    }
+
+    /**
+     * Literale im SQL-Text durch "?" ersetzen, damit keine personenbezogenen Daten protokolliert werden.
+     *
+     * @param sql Der SQL-Text
+     * @return Der SQL-Text ohne Literale
+     */
+    static String redigieren(final String sql) {
+        final var ohneStrings = STRING_LITERAL.matcher(sql).replaceAll("'?'");
+        return ZAHL_LITERAL.matcher(ohneStrings).replaceAll("?");
+    }
+
+    private Connection connectionProxy(final Connection connection) {
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final var result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                // bei prepareStatement() und prepareCall() ist das 1. Argument der SQL-Text
+                final var sql = args != null && args[0] instanceof String text ? text : null;
+                return statementProxy(statement, sql);
+            }
+            return result;
+        };
+        return (Connection) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{Connection.class}, handler);
+    }
+
+    private Statement statementProxy(final Statement statement, final String preparedSql) {
+        final Class<?> typ;
+        if (statement instanceof CallableStatement) {
+            typ = CallableStatement.class;
+        } else if (statement instanceof PreparedStatement) {
+            typ = PreparedStatement.class;
+        } else {
+            typ = Statement.class;
+        }
+        final var anzahlParameter = new int[1];
+
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final var name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (name.startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer index) {
+                    anzahlParameter[0] = Math.max(anzahlParameter[0], index);
+                }
+                final var result = invoke(statement, method, args);
+                return result instanceof ResultSet resultSet && "getResultSet".equals(name)
+                    ? resultSetProxy(resultSet)
+                    : result;
+            }
+
+            // bei Statement.execute(String) usw. ist das 1. Argument der SQL-Text
+            final var sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            final var start = System.nanoTime();
+            Object result = null;
+            try {
+                result = invoke(statement, method, args);
+            } finally {
+                erfassen(sql, System.nanoTime() - start, result, anzahlParameter[0]);
+            }
+            // erst nach erfolgreicher Ausfuehrung pruefen, damit ein SQL-Fehler nicht verdeckt wird
+            pruefen();
+            return result instanceof ResultSet resultSet ? resultSetProxy(resultSet) : result;
+        };
+        return (Statement) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{typ}, handler);
+    }
+
+    private static ResultSet resultSetProxy(final ResultSet resultSet) {
+        final var statistik = QueryStatistik.aktuell();
+        if (statistik == null) {
+            return resultSet;
+        }
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final var result = invoke(resultSet, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                statistik.zeilen(1);
+            }
+            return result;
+        };
+        return (ResultSet) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{ResultSet.class}, handler);
+    }
+
+    private void erfassen(final String sql, final long nanos, final Object result, final int anzahlParameter) {
+        final var statistik = QueryStatistik.aktuell();
+        if (statistik != null) {
+            statistik.statement(sql, nanos);
+            // Anzahl der geaenderten Zeilen bei executeUpdate(), executeLargeUpdate() und executeBatch()
+            if (result instanceof Integer anzahl) {
+                statistik.zeilen(Math.max(anzahl, 0));
+            } else if (result instanceof Long anzahl) {
+                statistik.zeilen(Math.max(anzahl, 0));
+            } else if (result instanceof int[] anzahl) {
+                statistik.zeilen(Arrays.stream(anzahl).filter(n -> n > 0).sum());
+            }
+        }
+        if (nanos >= slowQueryNanos && log.isWarnEnabled()) {
+            log.warn(
+                "Langsame SQL-Anweisung ({} ms, {} Bind-Parameter redigiert): {}",
+                Duration.ofNanos(nanos).toMillis(), anzahlParameter, sql == null ? "(Batch)" : redigieren(sql)
+            );
+        }
+    }
+
+    /**
+     * Das Budget schon während des Requests prüfen, damit bei app.query-budget.fail der Request fehlschlägt, bevor
+     * die Response geschrieben ist.
+     */
+    private void pruefen() {
+        if (!properties.fail()) {
+            return;
+        }
+        final var statistik = QueryStatistik.aktuell();
+        if (statistik == null) {
+            return;
+        }
+        final var verstoesse = statistik.verstoesse(properties);
+        if (!verstoesse.isEmpty()) {
+            throw new QueryBudgetExceededException(statistik.getEndpoint(), verstoesse.get(0).meldung());
+        }
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
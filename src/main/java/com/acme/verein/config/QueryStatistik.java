@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.web.servlet.HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE;
+
+/**
+ * Statistik der SQL-Anweisungen für den Request, der im aktuellen Thread bearbeitet wird.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+final class QueryStatistik {
+    private static final ThreadLocal<QueryStatistik> AKTUELL = new ThreadLocal<>();
+    private static final String UNBEKANNT = "UNKNOWN";
+
+    private final HttpServletRequest request;
+    private final Map<String, Integer> anzahlProSql = new HashMap<>();
+    private int anzahl;
+    private long nanos;
+    private long zeilen;
+
+    private QueryStatistik(final HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Eine neue Statistik für den aktuellen Thread beginnen.
+     *
+     * @param request Der Request, der im aktuellen Thread bearbeitet wird
+     * @return Die neue Statistik
+     */
+    static QueryStatistik starten(final HttpServletRequest request) {
+        final var statistik = new QueryStatistik(request);
+        AKTUELL.set(statistik);
+        return statistik;
+    }
+
+    /**
+     * Die Statistik des aktuellen Threads beenden.
+     */
+    static void beenden() {
+        AKTUELL.remove();
+    }
+
+    /**
+     * Die Statistik des aktuellen Threads ermitteln.
+     *
+     * @return Die Statistik oder null, falls außerhalb eines Requests z.B. durch @Scheduled
+     */
+    static QueryStatistik aktuell() {
+        return AKTUELL.get();
+    }
+
+    /**
+     * Den Endpoint des Requests ermitteln, z.B. "GET /rest/{id}" oder "POST /graphql".
+     *
+     * @return Der Endpoint mit dem Pattern, sobald der Handler ermittelt ist
+     */
+    String getEndpoint() {
+        final var pattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + ' ' + (pattern == null ? UNBEKANNT : pattern);
+    }
+
+    void statement(final String sql, final long dauerNanos) {
+        anzahl++;
+        nanos += dauerNanos;
+        if (sql != null) {
+            anzahlProSql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void zeilen(final long neueZeilen) {
+        zeilen += neueZeilen;
+    }
+
+    int getAnzahl() {
+        return anzahl;
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    long getZeilen() {
+        return zeilen;
+    }
+
+    /**
+     * Die SQL-Anweisungen, die mindestens so oft ausgeführt wurden, wie angegeben.
+     *
+     * @param min Mindestanzahl
+     * @return Die SQL-Anweisungen mit ihrer Anzahl
+     */
+    Map<String, Integer> wiederholt(final int min) {
+        final Map<String, Integer> result = new HashMap<>();
+        anzahlProSql.forEach((sql, n) -> {
+            if (n >= min) {
+                result.put(sql, n);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Die bisherigen Überschreitungen des Budgets ermitteln.
+     *
+     * @param properties Das Budget
+     * @return Die Überschreitungen, ggf. eine leere Liste
+     */
+    List<Verstoss> verstoesse(final QueryBudgetProperties properties) {
+        final List<Verstoss> result = new ArrayList<>();
+        if (anzahl > properties.maxStatements()) {
+            result.add(new Verstoss(
+                "statements",
+                anzahl + " SQL-Anweisungen statt maximal " + properties.maxStatements()
+            ));
+        }
+        wiederholt(properties.maxWiederholungen()).forEach((sql, n) -> result.add(new Verstoss(
+            "n-plus-eins",
+            "Moegliches N+1-Problem: " + n + "x " + QueryMetricsDataSource.redigieren(sql)
+        )));
+        return result;
+    }
+
+    /**
+     * Überschreitung des Budgets.
+     *
+     * @param grund Der Grund als Tag für die Metrik, z.B. "statements" oder "n-plus-eins"
+     * @param meldung Die Meldung für das Log bzw. die Exception
+     */
+    record Verstoss(String grund, String meldung) {
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Properties für Lese-Replikate mit dem Präfix "app.datasource". Transaktionen mit readOnly = true werden auf die
+ * Replikate verteilt, alle anderen Transaktionen verwenden die DataSource aus "spring.datasource".
+ *
+ * @param replicas Die Lese-Replikate, ggf. leer
+ * @param maxLag Maximale Verzögerung eines Replikats, ab der stattdessen die primäre DB verwendet wird
+ * @param lagCheckInterval Zeitabstand für die Abfrage der Verzögerung
+ * @param lagQuery SQL-Abfrage, die die Verzögerung in Sekunden liefert, oder leer, z.B. für H2
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@ConfigurationProperties(prefix = "app.datasource")
+public record ReplicaProperties(
+    @DefaultValue List<Replica> replicas,
+    @DefaultValue("5s") Duration maxLag,
+    @DefaultValue("2s") Duration lagCheckInterval,
+    String lagQuery
+) {
+    /**
+     * Verbindungsdaten für ein Lese-Replikat.
+     *
+     * @param url JDBC-URL des Replikats
+     * @param username Benutzername
+     * @param password Passwort
+     */
+    public record Replica(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * DataSource, die Transaktionen mit readOnly = true reihum auf die Lese-Replikate verteilt und alle anderen
+ * Transaktionen an die primäre DB weiterleitet. Die Verzögerung der Replikate wird periodisch abgefragt: ist sie zu
+ * groß oder ist ein Replikat nicht erreichbar, wird es übersprungen. Sind alle Replikate übersprungen, wird die
+ * primäre DB verwendet. Damit das Flag readOnly beim Holen der Connection bereits gesetzt ist, muss die DataSource in
+ * einen LazyConnectionDataSourceProxy eingebettet werden.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Slf4j
+public final class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    /**
+     * Schlüssel bzw. Poolname für die primäre DB.
+     */
+    public static final String PRIMARY = "primary";
+
+    private static final String METRIC_ROUTING = "verein.datasource.routing";
+    private static final String METRIC_LAG = "verein.datasource.replica.lag";
+    private static final String TAG_POOL = "pool";
+
+    private final List<Replica> replicas;
+    private final Counter primaryCounter;
+    private final Counter fallbackCounter;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+    private final ReplicaProperties properties;
+
+    ReplicaRoutingDataSource(
+        final DataSource primary,
+        final ReplicaProperties properties,
+        final MeterRegistry registry
+    ) {
+        this.properties = properties;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas = new ArrayList<>(properties.replicas().size());
+        for (var i = 0; i < properties.replicas().size(); i++) {
+            final var replica = new Replica("replica-" + (i + 1), properties.replicas().get(i), registry);
+            replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        primaryCounter = registry.counter(METRIC_ROUTING, TAG_POOL, PRIMARY, "fallback", "false");
+        fallbackCounter = registry.counter(METRIC_ROUTING, TAG_POOL, PRIMARY, "fallback", "true");
+
+        if (replicas.isEmpty()) {
+            scheduler = null;
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final var interval = properties.lagCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkLag, 0, interval, MILLISECONDS);
+        log.info("ReplicaRoutingDataSource: {} Replikate, maxLag={}", replicas.size(), properties.maxLag());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            primaryCounter.increment();
+            return PRIMARY;
+        }
+        final var start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (var i = 0; i < replicas.size(); i++) {
+            final var replica = replicas.get((start + i) % replicas.size());
+            if (replica.verfuegbar) {
+                replica.counter.increment();
+                return replica.name;
+            }
+        }
+        fallbackCounter.increment();
+        return PRIMARY;
+    }
+
+    private void checkLag() {
+        final var lagQuery = properties.lagQuery();
+        final var maxLag = properties.maxLag().toMillis() / 1000.0;
+        for (final var replica : replicas) {
+            if (lagQuery == null || lagQuery.isBlank()) {
+                replica.lag = 0;
+                replica.verfuegbar = true;
+                continue;
+            }
+            try (var connection = replica.dataSource.getConnection();
+                 var statement = connection.createStatement();
+                 var resultSet = statement.executeQuery(lagQuery)) {
+                replica.lag = resultSet.next() ? resultSet.getDouble(1) : 0;
+                final var verfuegbar = replica.lag <= maxLag;
+                if (verfuegbar != replica.verfuegbar) {
+                    log.warn("checkLag: {} verfuegbar={}, lag={}s", replica.name, verfuegbar, replica.lag);
+                }
+                replica.verfuegbar = verfuegbar;
+            } catch (final SQLException | RuntimeException ex) {
+                if (replica.verfuegbar) {
+                    log.warn("checkLag: {} nicht erreichbar: {}", replica.name, ex.getMessage());
+                }
+                replica.lag = Double.NaN;
+                replica.verfuegbar = false;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Ein Lese-Replikat mit eigenem Connection-Pool, dessen Metriken Hikari unter dem Poolnamen bereitstellt.
+     */
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final Counter counter;
+        // bis zur ersten Abfrage der Verzoegerung wird die primaere DB verwendet
+        private volatile boolean verfuegbar;
+        private volatile double lag = Double.NaN;
+
+        Replica(final String name, final ReplicaProperties.Replica properties, final MeterRegistry registry) {
+            this.name = name;
+            dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(properties.url());
+            dataSource.setUsername(properties.username());
+            dataSource.setPassword(properties.password());
+            dataSource.setReadOnly(true);
+            dataSource.setMetricRegistry(registry);
+            counter = registry.counter(METRIC_ROUTING, TAG_POOL, name, "fallback", "false");
+            Gauge.builder(METRIC_LAG, this, replica -> replica.lag)
+                .description("Verzoegerung des Replikats in Sekunden")
+                .baseUnit("seconds")
+                .tag(TAG_POOL, name)
+                .register(registry);
+        }
+    }
+}
@@ -16,17 +16,11 @@
  */
 package com.acme.verein.entity;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
+import jakarta.persistence.Embeddable;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 
-import java.util.UUID;
-
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -35,12 +29,12 @@ import lombok.Setter;
 import lombok.ToString;
 
 /**
- * Adressdaten für die Anwendungslogik und zum Abspeichern in der DB.
+ * Adressdaten für die Anwendungslogik und zum Abspeichern in der DB. Die Adresse ist eingebettet, d.h. PLZ und Ort
+ * sind Spalten der Tabelle verein und werden ohne Join gelesen.
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
-@Entity
-@Table(name = "adresse")
+@Embeddable
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -49,10 +43,6 @@ import lombok.ToString;
 @Builder
 @SuppressWarnings({"JavadocDeclaration", "RequireEmptyLineBeforeBlockTagGroup"})
 public class Adresse {
-    @Id
-    @GeneratedValue
-    @JsonIgnore
-    private UUID id;
     /**
      * Konstante für den regulären Ausdruck einer Postleitzahl als 5-stellige Zahl mit führender Null.
      */
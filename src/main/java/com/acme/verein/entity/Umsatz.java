@@ -16,15 +16,11 @@
  */
 package com.acme.verein.entity;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
+import jakarta.persistence.Embeddable;
+import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
 import java.util.Currency;
-import java.util.UUID;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -34,13 +30,13 @@ import lombok.Setter;
 import lombok.ToString;
 
 /**
- * Geldbetrag und Währungseinheit für eine Umsatzangabe.
+ * Geldbetrag und Währungseinheit für eine Umsatzangabe. Der Umsatz ist eingebettet, d.h. Betrag und Währung sind
+ * Spalten der Tabelle verein. Ohne Umsatz sind beide Spalten NULL, mit Umsatz sind beide gesetzt wie beim Constraint
+ * verein_umsatz_check.
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
-
-@Entity
-@Table(name = "umsatz")
+@Embeddable
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -49,10 +45,11 @@ import lombok.ToString;
 @Builder
 @SuppressWarnings({"JavadocDeclaration", "RequireEmptyLineBeforeBlockTagGroup"})
 public class Umsatz {
-    @Id
-    @GeneratedValue
-    @JsonIgnore
-    private UUID id;
+    /**
+     * Anzahl der Nachkommastellen beim Betrag wie bei der Spalte betrag mit decimal(10,2). Ein Betrag in der
+     * kleinsten Einheit, z.B. in Cent, ist der Betrag mal 10 hoch NACHKOMMASTELLEN als long.
+     */
+    public static final int NACHKOMMASTELLEN = 2;
 
     /**
      * Der Betrag beim Umsatz.
@@ -60,6 +57,7 @@ public class Umsatz {
      * @param betrag Der Betrag.
      * @return Der Betrag.
      */
+    @NotNull
     private BigDecimal betrag;
 
     /**
@@ -68,5 +66,6 @@ public class Umsatz {
      * @param waehrung Die Währung.
      * @return Die Währung.
      */
+    @NotNull
     private Currency waehrung;
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator für zeitlich sortierte UUIDs der Version 7 gemäß RFC 9562. Die ersten 48 Bit sind der Zeitstempel in
+ * Millisekunden, so dass neue Datensätze im B-Baum des Primärschlüssels am rechten Rand statt auf zufälligen Seiten
+ * eingefügt werden. Die folgenden 12 Bit sind ein Zähler, damit die UUIDs innerhalb der JVM auch bei mehreren UUIDs pro
+ * Millisekunde streng monoton steigen. Die restlichen 62 Bit sind zufällig.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public final class UuidV7Generator implements IdentifierGenerator {
+    /**
+     * Name des Generators für @GeneratedValue.
+     */
+    public static final String NAME = "uuid-v7";
+
+    /**
+     * Vollständiger Klassenname für @GenericGenerator.
+     */
+    public static final String STRATEGY = "com.acme.verein.entity.UuidV7Generator";
+
+    private static final int ZAEHLER_BITS = 12;
+    private static final long ZAEHLER_MASKE = (1L << ZAEHLER_BITS) - 1;
+    private static final int ZEITSTEMPEL_SHIFT = 16;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANTE = 0x8000_0000_0000_0000L;
+    private static final long ZUFALL_MASKE = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    // Zeitstempel und Zaehler der zuletzt erzeugten UUID
+    private static final AtomicLong LETZTE = new AtomicLong();
+
+    /**
+     * Eine neue UUID der Version 7 erzeugen, z.B. für Datensätze, die ohne Hibernate eingefügt werden.
+     *
+     * @return Die neue UUID
+     */
+    public static UUID next() {
+        final var jetzt = System.currentTimeMillis() << ZAEHLER_BITS;
+        // bei mehreren UUIDs in derselben Millisekunde wird der Zaehler erhoeht; ein Ueberlauf erhoeht den Zeitstempel
+        final var zeitUndZaehler = LETZTE.updateAndGet(letzte -> Math.max(jetzt, letzte + 1));
+        final var msb = (zeitUndZaehler >>> ZAEHLER_BITS) << ZEITSTEMPEL_SHIFT
+            | VERSION
+            | zeitUndZaehler & ZAEHLER_MASKE;
+        final var lsb = RANDOM.nextLong() & ZUFALL_MASKE | VARIANTE;
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public Object generate(final SharedSessionContractImplementor session, final Object object) {
+        return next();
+    }
+}
@@ -37,14 +37,14 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import static jakarta.persistence.CascadeType.PERSIST;
-import static jakarta.persistence.CascadeType.REMOVE;
-import static jakarta.persistence.FetchType.LAZY;
-
 /**
- * Daten eines Vereins. In DDD ist Verein ist ein Aggregate Root.
+ * Daten eines Vereins. In DDD ist Verein ist ein Aggregate Root. Wegen @DynamicUpdate enthält ein UPDATE nur die
+ * geänderten Spalten. Adresse und Umsatz sind eingebettet, so dass ein Verein ohne Join gelesen und mit einem
+ * einzigen INSERT angelegt wird.
  * <img src="../../../../../asciidoc/Verein.svg" alt="Klassendiagramm">
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
@@ -52,6 +52,7 @@ import static jakarta.persistence.FetchType.LAZY;
 // https://thorben-janssen.com/java-records-hibernate-jpa
 @Entity
 @Table(name = "verein")
+@DynamicUpdate
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
@@ -87,7 +88,8 @@ public class Verein {
      * @return Die ID.
      */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = UuidV7Generator.NAME)
+    @GenericGenerator(name = UuidV7Generator.NAME, strategy = UuidV7Generator.STRATEGY)
     @EqualsAndHashCode.Include
     private UUID id;
 
@@ -139,9 +141,8 @@ public class Verein {
      * @param umsatz Der Umsatz.
      * @return Der Umsatz.
      */
-    @OneToOne(cascade = {PERSIST, REMOVE}, fetch = LAZY)
-    @JoinColumn(updatable = false)
-    @ToString.Exclude
+    @Embedded
+    @Valid
     private Umsatz umsatz;
 
     @CreationTimestamp
@@ -156,10 +157,8 @@ public class Verein {
      * @param adresse Die Adresse.
      * @return Die Adresse.
      */
-    @OneToOne(optional = false, cascade = {PERSIST, REMOVE}, fetch = LAZY)
-    @JoinColumn(updatable = false)
+    @Embedded
     @Valid
-    @ToString.Exclude
     private Adresse adresse;
 
     /**
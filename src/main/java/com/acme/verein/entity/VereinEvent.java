@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import static jakarta.persistence.EnumType.STRING;
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+/**
+ * Event in der Outbox-Tabelle zu einer Änderung an einem Verein. Die Events werden nur per SQL in derselben
+ * Transaktion wie die Änderung geschrieben und beim Veröffentlichen durch das Relay mit einer Position versehen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Entity
+@Table(name = "verein_event")
+@Immutable
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Getter
+@ToString
+@SuppressWarnings({"JavadocDeclaration", "RequireEmptyLineBeforeBlockTagGroup"})
+public class VereinEvent {
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @EqualsAndHashCode.Include
+    @JsonIgnore
+    private Long id;
+
+    /**
+     * Die ID des geänderten Vereins.
+     *
+     * @return Die ID des Vereins
+     */
+    private UUID vereinId;
+
+    /**
+     * Die Art der Änderung.
+     *
+     * @return Die Art der Änderung
+     */
+    @Enumerated(STRING)
+    private EventTyp typ;
+
+    /**
+     * Die neue Version des Vereins.
+     *
+     * @return Die neue Version oder null beim Löschen
+     */
+    private Integer version;
+
+    /**
+     * Die fortlaufende Position beim Veröffentlichen, die auch als Last-Event-ID dient.
+     *
+     * @return Die Position oder null, falls das Event noch nicht veröffentlicht ist
+     */
+    private Long position;
+
+    /**
+     * Der Zeitpunkt der Änderung.
+     *
+     * @return Der Zeitpunkt der Änderung
+     */
+    private LocalDateTime erzeugt;
+}
@@ -16,9 +16,11 @@
  */
 package com.acme.verein.graphql;
 
+import com.acme.verein.service.BatchSizeInvalidException;
 import com.acme.verein.service.ConstraintViolationsException;
 import com.acme.verein.service.EmailExistsException;
 import com.acme.verein.service.NotFoundException;
+import com.acme.verein.service.SuchkriteriumInvalidException;
 import graphql.GraphQLError;
 import graphql.schema.DataFetchingEnvironment;
 
@@ -54,6 +56,10 @@ final class ExceptionHandler extends DataFetcherExceptionResolverAdapter {
             return new NotFoundError(notFound.getId(), notFound.getSuchkriterien());
         } else if (ex instanceof DateTimeParseException dateTimeParse) {
             return new DateTimeParseError(dateTimeParse.getParsedString());
+        } else if (ex instanceof final SuchkriteriumInvalidException suchkriteriumInvalid) {
+            return new SuchkriteriumInvalidError(suchkriteriumInvalid.getMessage());
+        } else if (ex instanceof final BatchSizeInvalidException batchSizeInvalid) {
+            return new BatchSizeInvalidError(batchSizeInvalid.getMessage());
         }
         return super.resolveToSingleError(ex, env);
     }
@@ -18,7 +18,6 @@ package com.acme.verein.graphql;
 
 import org.springframework.util.LinkedMultiValueMap;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,10 +26,27 @@ import java.util.Map;
  *
  * @param name  Name
  * @param email Emailadresse
+ * @param plz Präfix der Postleitzahl
+ * @param ort Präfix des Orts
+ * @param gruendungsdatumVon Frühestes Gründungsdatum
+ * @param gruendungsdatumBis Spätestes Gründungsdatum
+ * @param waehrung Währung für umsatzMin und umsatzMax
+ * @param umsatzMin Mindestbetrag beim Umsatz
+ * @param umsatzMax Höchstbetrag beim Umsatz
+ * @param sort Sortierung, z.B. "gruendungsdatum,desc"
  */
+@SuppressWarnings("RecordComponentNumber")
 record Suchkriterien(
     String name,
-    String email
+    String email,
+    String plz,
+    String ort,
+    String gruendungsdatumVon,
+    String gruendungsdatumBis,
+    String waehrung,
+    String umsatzMin,
+    String umsatzMax,
+    String sort
 ) {
     /**
      * Konvertierung in eine Map.
@@ -39,12 +55,22 @@ record Suchkriterien(
      */
     Map<String, List<String>> toMap() {
         final Map<String, List<String>> map = new LinkedMultiValueMap<>();
-        if (name != null) {
-            map.put("nachname", List.of(name));
-        }
-        if (email != null) {
-            map.put("email", List.of(email));
-        }
+        put(map, "name", name);
+        put(map, "email", email);
+        put(map, "plz", plz);
+        put(map, "ort", ort);
+        put(map, "gruendungsdatumVon", gruendungsdatumVon);
+        put(map, "gruendungsdatumBis", gruendungsdatumBis);
+        put(map, "waehrung", waehrung);
+        put(map, "umsatzMin", umsatzMin);
+        put(map, "umsatzMax", umsatzMax);
+        put(map, "sort", sort);
         return map;
     }
+
+    private static void put(final Map<String, List<String>> map, final String key, final String value) {
+        if (value != null) {
+            map.put(key, List.of(value));
+        }
+    }
 }
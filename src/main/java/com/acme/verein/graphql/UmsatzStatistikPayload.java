@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.graphql;
+
+import com.acme.verein.service.UmsatzStatistik;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static com.acme.verein.service.UmsatzStatistik.betrag;
+
+/**
+ * Value-Klasse für die Statistik der Umsätze einer Währung an der GraphQL-Schnittstelle. Erst hier werden die
+ * Beträge aus der kleinsten Einheit in BigDecimal umgerechnet.
+ *
+ * @param waehrung Die Währung
+ * @param anzahl Anzahl der Vereine mit einem Umsatz in der Währung
+ * @param summe Summe der Umsätze
+ * @param durchschnitt Durchschnitt der Umsätze
+ * @param median Median der Umsätze
+ * @param p90 90. Perzentil der Umsätze
+ * @param p99 99. Perzentil der Umsätze
+ */
+record UmsatzStatistikPayload(
+    Currency waehrung,
+    int anzahl,
+    BigDecimal summe,
+    BigDecimal durchschnitt,
+    BigDecimal median,
+    BigDecimal p90,
+    BigDecimal p99
+) {
+    UmsatzStatistikPayload(final UmsatzStatistik statistik) {
+        this(
+            statistik.waehrung(),
+            statistik.anzahl(),
+            betrag(statistik.summe()),
+            betrag(statistik.durchschnitt()),
+            betrag(statistik.median()),
+            betrag(statistik.p90()),
+            betrag(statistik.p99())
+        );
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.acme.verein.graphql;
 
+import com.acme.verein.service.BatchResult;
 import com.acme.verein.service.VereinWriteService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,6 +24,8 @@ import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.stereotype.Controller;
 
+import java.util.List;
+
 /**
  * Eine Controller-Klasse für das Schreiben mit der GraphQL-Schnittstelle und den Typen aus dem GraphQL-Schema.
  *
@@ -47,4 +50,20 @@ final class VereinMutationController {
         log.debug("create: id={}", id);
         return new CreatePayload(id);
     }
+
+    /**
+     * Mehrere neue Vereine anlegen.
+     *
+     * @param input Die Eingabedaten für die neuen Vereine
+     * @return Ein Ergebnis pro Verein in derselben Reihenfolge mit der generierten ID oder mit Fehlermeldungen oder
+     *      ein Fehler, falls es mehr als VereinWriteService.MAX_BATCH_SIZE Vereine sind
+     */
+    @MutationMapping
+    List<BatchResult> createMany(@Argument final List<VereinInput> input) {
+        log.debug("createMany: anzahl={}", input.size());
+        final var vereine = input.stream()
+            .map(VereinInput::toVerein)
+            .toList();
+        return service.createMany(vereine);
+    }
 }
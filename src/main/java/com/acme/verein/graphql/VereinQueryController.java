@@ -17,6 +17,7 @@
 package com.acme.verein.graphql;
 
 import com.acme.verein.entity.Verein;
+import com.acme.verein.service.Facetten;
 import com.acme.verein.service.VereinReadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,9 +27,11 @@ import org.springframework.stereotype.Controller;
 import static java.util.Collections.emptyMap;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.acme.verein.service.VereinReadService.MAX_PAGE_SIZE;
 import static java.util.Collections.emptyMap;
 
 /**
@@ -40,6 +43,8 @@ import static java.util.Collections.emptyMap;
 @RequiredArgsConstructor
 @Slf4j
 final class VereinQueryController {
+    private static final int DEFAULT_FACETTEN_LIMIT = 20;
+
     private final VereinReadService service;
 
     /**
@@ -70,4 +75,38 @@ final class VereinQueryController {
         log.debug("vereine: {}", vereine);
         return vereine;
     }
+
+    /**
+     * Die Facetten Ort, PLZ-Region und Gründungsjahr mit der Anzahl der Vereine.
+     *
+     * @param limit Maximale Anzahl an Werten pro Facette
+     * @return Die Facetten mit den häufigsten Werten
+     */
+    @QueryMapping
+    Facetten facetten(@Argument final Optional<Integer> limit) {
+        log.debug("facetten: limit={}", limit);
+        final var facetten = service.getFacetten(
+            Math.max(1, Math.min(limit.orElse(DEFAULT_FACETTEN_LIMIT), MAX_PAGE_SIZE))
+        );
+        log.debug("facetten: {}", facetten);
+        return facetten;
+    }
+
+    /**
+     * Statistik der Umsätze pro Währung für alle Vereine oder die Vereine zu Suchkriterien.
+     *
+     * @param input Suchkriterien wie bei der Query vereine
+     * @return Die Statistik pro Währung
+     */
+    @QueryMapping
+    List<UmsatzStatistikPayload> umsatzStatistik(@Argument final Optional<Suchkriterien> input) {
+        log.debug("umsatzStatistik: input={}", input);
+        final var suchkriterien = input.map(Suchkriterien::toMap).orElse(emptyMap());
+        final var statistik = service.getUmsatzStatistik(suchkriterien)
+            .stream()
+            .map(UmsatzStatistikPayload::new)
+            .toList();
+        log.debug("umsatzStatistik: {}", statistik);
+        return statistik;
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Projektion für das Resultat einer Änderung mit VereinRepository.updateIfVersion: die neue Version und die
+ * bisherigen Werte, z.B. für In-Memory-Indexe.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public interface Aenderung {
+    /**
+     * Die neue Version nach der Änderung.
+     *
+     * @return Die neue Version
+     */
+    int getVersion();
+
+    /**
+     * Der Name vor der Änderung.
+     *
+     * @return Der bisherige Name
+     */
+    String getNameAlt();
+
+    /**
+     * Das Gründungsdatum vor der Änderung.
+     *
+     * @return Das bisherige Gründungsdatum oder null
+     */
+    LocalDate getGruendungsdatumAlt();
+}
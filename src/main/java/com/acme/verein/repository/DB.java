@@ -34,7 +34,9 @@ import static java.math.BigDecimal.ZERO;
 import static java.util.Locale.GERMANY;
 
 /**
- * Emulation der Datenbasis für persistente Vereine.
+ * Emulation der Datenbasis für persistente Vereine, z.B. als Anfangsbestand von InMemoryVereinRepository.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
 @SuppressWarnings({"UtilityClassCanBeEnum", "UtilityClass", "MagicNumber", "RedundantSuppression"})
 final class DB {
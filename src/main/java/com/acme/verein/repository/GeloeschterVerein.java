@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projektion für einen Verein, der mit VereinRepository.deleteMitEvent gelöscht wurde, mit den Werten,
+ * die z.B. für In-Memory-Indexe benötigt werden.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public interface GeloeschterVerein {
+    /**
+     * Die ID des gelöschten Vereins.
+     *
+     * @return Die ID
+     */
+    UUID getId();
+
+    /**
+     * Der Name des gelöschten Vereins.
+     *
+     * @return Der Name
+     */
+    String getName();
+
+    /**
+     * Das Gründungsdatum des gelöschten Vereins.
+     *
+     * @return Das Gründungsdatum oder null
+     */
+    LocalDate getGruendungsdatum();
+
+    /**
+     * Die PLZ des gelöschten Vereins.
+     *
+     * @return Die PLZ
+     */
+    String getPlz();
+
+    /**
+     * Der Ort des gelöschten Vereins.
+     *
+     * @return Der Ort
+     */
+    String getOrt();
+}
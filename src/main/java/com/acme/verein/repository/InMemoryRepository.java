@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Basisklasse für Repositories, deren Entities statt in der DB in einer ConcurrentHashMap gespeichert sind, z.B. für
+ * Lasttests ohne PostgreSQL im Profile "in-memory". Die Entities werden als Kopien herausgegeben. Wie bei JPA werden
+ * Änderungen an Entities, die innerhalb einer schreibenden Transaktion gelesen wurden, durch flush() bzw. beim Commit
+ * geschrieben. Bei einem Rollback werden die Entities, die innerhalb der Transaktion gespeichert oder entfernt wurden,
+ * auf den Stand vor der ersten Änderung zurückgesetzt. Es gibt jedoch keine Isolation, d.h. andere Transaktionen sehen
+ * Änderungen schon vor dem Commit. Schreibende Methoden sind synchronisiert, lesende Methoden greifen ohne Sperre auf
+ * die Map und die Indexe zu.
+ *
+ * @param <T> Typ der Entities
+ * @param <ID> Typ der IDs
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@SuppressWarnings("ClassFanOutComplexity")
+abstract class InMemoryRepository<T, ID> implements JpaRepository<T, ID> {
+    /**
+     * Konstante für das Spring-Profile "in-memory".
+     */
+    static final String IN_MEMORY = "in-memory";
+
+    /**
+     * Sortierung von UUIDs wie bei PostgreSQL, d.h. byteweise ohne Vorzeichen statt wie bei UUID.compareTo().
+     */
+    static final Comparator<UUID> UUID_ORDNUNG = Comparator
+        .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+        .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    /**
+     * Die gespeicherten Entities zur jeweiligen ID.
+     */
+    protected final ConcurrentMap<ID, T> daten = new ConcurrentHashMap<>();
+
+    /**
+     * Die ID einer Entity ermitteln.
+     *
+     * @param entity Die Entity
+     * @return Die ID oder null, falls die Entity noch nicht gespeichert ist
+     */
+    protected abstract ID getId(T entity);
+
+    /**
+     * Eine Kopie einer Entity erstellen, damit Änderungen an herausgegebenen Entities nicht die gespeicherten
+     * Entities verändern.
+     *
+     * @param entity Die zu kopierende Entity
+     * @return Die Kopie
+     */
+    protected abstract T kopie(T entity);
+
+    /**
+     * Eine neue oder geänderte Entity speichern. Generierte Werte wie ID und Version werden in der übergebenen
+     * Entity gesetzt. Der Aufruf erfolgt mit Sperre.
+     *
+     * @param entity Die zu speichernde Entity
+     */
+    protected abstract void schreiben(T entity);
+
+    /**
+     * Eine gespeicherte Entity einschließlich ihrer Indexeinträge entfernen. Der Aufruf erfolgt mit Sperre.
+     *
+     * @param id Die ID der zu entfernenden Entity
+     * @return Die entfernte Entity oder null
+     */
+    protected abstract T entfernen(ID id);
+
+    /**
+     * Eine entfernte Entity unverändert einschließlich ihrer Indexeinträge wieder einfügen, z.B. bei einem Rollback.
+     * Der Aufruf erfolgt mit Sperre.
+     *
+     * @param entity Die gespeicherte Entity vor der ersten Änderung in der Transaktion
+     */
+    protected abstract void einfuegen(T entity);
+
+    /**
+     * Eine gelesene Entity zurückschreiben, falls sie innerhalb der Transaktion geändert wurde.
+     *
+     * @param entity Die gelesene und evtl. geänderte Entity
+     */
+    protected void zurueckschreiben(final T entity) {
+        // Standard: Entities sind unveraenderlich
+    }
+
+    /**
+     * Eine gespeicherte Entity als Kopie herausgeben. Innerhalb einer schreibenden Transaktion wird die Kopie für
+     * flush() vorgemerkt.
+     *
+     * @param entity Die gespeicherte Entity
+     * @return Die Kopie
+     */
+    protected T ausgeben(final T entity) {
+        final var result = kopie(entity);
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            transaktion().geladen.put(getId(result), result);
+        }
+        return result;
+    }
+
+    /**
+     * Den aktuellen Stand einer gespeicherten Entity vor der ersten Änderung innerhalb der Transaktion vormerken,
+     * damit er bei einem Rollback wiederhergestellt wird. Der Aufruf erfolgt mit Sperre vor jeder Änderung an daten.
+     *
+     * @param id Die ID der Entity, die gespeichert oder entfernt wird
+     */
+    protected void vormerken(final ID id) {
+        if (id == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            // ohne Transaktion bzw. waehrend afterCompletion() beim Zuruecksetzen
+            return;
+        }
+        final var vorher = transaktion().vorher;
+        if (!vorher.containsKey(id)) {
+            // null, falls die Entity in der Transaktion neu angelegt wird
+            vorher.put(id, daten.get(id));
+        }
+    }
+
+    /**
+     * Comparator zu einer Sortierung von Spring Data. NULL-Werte stehen wie bei PostgreSQL aufsteigend am Ende und
+     * absteigend am Anfang.
+     *
+     * @param sort Die Sortierung
+     * @return Der Comparator oder null, falls unsortiert
+     */
+    protected Comparator<T> comparator(final Sort sort) {
+        Comparator<T> result = null;
+        for (final var order : sort) {
+            final var property = order.getProperty();
+            Comparator<T> comparator = (a, b) -> vergleichen(wert(a, property), wert(b, property));
+            if (order.isDescending()) {
+                comparator = comparator.reversed();
+            }
+            result = result == null ? comparator : result.thenComparing(comparator);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized <S extends T> S save(final S entity) {
+        schreiben(entity);
+        return entity;
+    }
+
+    @Override
+    public synchronized <S extends T> List<S> saveAll(final Iterable<S> entities) {
+        final List<S> result = new ArrayList<>();
+        entities.forEach(entity -> result.add(save(entity)));
+        return result;
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(final S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(final Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void flush() {
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        synchronized (this) {
+            transaktion().geladen.values().forEach(this::zurueckschreiben);
+        }
+    }
+
+    @Override
+    public Optional<T> findById(final ID id) {
+        return Optional.ofNullable(daten.get(id)).map(this::ausgeben);
+    }
+
+    @Override
+    public boolean existsById(final ID id) {
+        return daten.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return daten.values().stream().map(this::ausgeben).toList();
+    }
+
+    @Override
+    public List<T> findAllById(final Iterable<ID> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+            .map(daten::get)
+            .filter(Objects::nonNull)
+            .map(this::ausgeben)
+            .toList();
+    }
+
+    @Override
+    public List<T> findAll(final Sort sort) {
+        return sortiert(daten.values().stream(), sort).map(this::ausgeben).toList();
+    }
+
+    @Override
+    public Page<T> findAll(final Pageable pageable) {
+        return seite(daten.values().stream(), pageable);
+    }
+
+    @Override
+    public long count() {
+        return daten.size();
+    }
+
+    @Override
+    public synchronized void deleteById(final ID id) {
+        entfernen(id);
+    }
+
+    @Override
+    public void delete(final T entity) {
+        deleteById(getId(entity));
+    }
+
+    @Override
+    public synchronized void deleteAllById(final Iterable<? extends ID> ids) {
+        ids.forEach(this::entfernen);
+    }
+
+    @Override
+    public synchronized void deleteAll(final Iterable<? extends T> entities) {
+        entities.forEach(entity -> entfernen(getId(entity)));
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        List.copyOf(daten.keySet()).forEach(this::entfernen);
+    }
+
+    @Override
+    public void deleteAllInBatch(final Iterable<T> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(final Iterable<ID> ids) {
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    @Deprecated
+    public T getOne(final ID id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public T getById(final ID id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public T getReferenceById(final ID id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Keine Entity mit der ID " + id));
+    }
+
+    // Query by Example wird von den Services nicht verwendet
+
+    @Override
+    public <S extends T> Optional<S> findOne(final Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(final Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(final Example<S> example, final Sort sort) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(final Example<S> example, final Pageable pageable) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T> long count(final Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T> boolean exists(final Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(
+        final Example<S> example,
+        final Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction
+    ) {
+        throw queryByExample();
+    }
+
+    /**
+     * Entities sortieren, z.B. für findAll(Sort).
+     *
+     * @param entities Die gespeicherten Entities
+     * @param sort Die Sortierung
+     * @return Die sortierten Entities
+     */
+    protected Stream<T> sortiert(final Stream<T> entities, final Sort sort) {
+        final var comparator = comparator(sort);
+        return comparator == null ? entities : entities.sorted(comparator);
+    }
+
+    /**
+     * Eine Seite aus gespeicherten Entities bilden, z.B. für findAll(Pageable).
+     *
+     * @param entities Die gespeicherten Entities
+     * @param pageable Die gewünschte Seite mit der Sortierung
+     * @return Die Seite mit Kopien der Entities
+     */
+    protected Page<T> seite(final Stream<T> entities, final Pageable pageable) {
+        final var alle = sortiert(entities, pageable.getSort()).toList();
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(alle.stream().map(this::ausgeben).toList());
+        }
+        final var inhalt = alle.stream()
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .map(this::ausgeben)
+            .toList();
+        return new PageImpl<>(inhalt, pageable, alle.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Transaktion transaktion() {
+        var transaktion = (Transaktion) TransactionSynchronizationManager.getResource(this);
+        if (transaktion == null) {
+            transaktion = new Transaktion();
+            TransactionSynchronizationManager.bindResource(this, transaktion);
+            TransactionSynchronizationManager.registerSynchronization(transaktion);
+        }
+        return transaktion;
+    }
+
+    private synchronized void zuruecksetzen(final Map<ID, T> vorher) {
+        // zuerst alle Aenderungen entfernen, damit z.B. eine getauschte Emailadresse nicht doppelt indexiert ist
+        vorher.keySet().forEach(this::entfernen);
+        vorher.values().stream().filter(Objects::nonNull).forEach(this::einfuegen);
+    }
+
+    private static Object wert(final Object entity, final String property) {
+        return new BeanWrapperImpl(entity).getPropertyValue(property);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int vergleichen(final Object a, final Object b) {
+        if (a == null || b == null) {
+            // NULL ist groesser als alle anderen Werte
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        if (a instanceof UUID uuidA && b instanceof UUID uuidB) {
+            return UUID_ORDNUNG.compare(uuidA, uuidB);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static UnsupportedOperationException queryByExample() {
+        return new UnsupportedOperationException(
+            "Query by Example wird im Profile " + IN_MEMORY + " nicht unterstuetzt"
+        );
+    }
+
+    /**
+     * Zustand einer Transaktion: die gelesenen Entities für flush() und die gespeicherten Entities vor der ersten
+     * Änderung für einen Rollback.
+     */
+    private final class Transaktion implements TransactionSynchronization {
+        private final Map<ID, T> geladen = new HashMap<>();
+        private final Map<ID, T> vorher = new HashMap<>();
+
+        @Override
+        public void beforeCommit(final boolean readOnly) {
+            flush();
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryRepository.this);
+            if (status == STATUS_ROLLED_BACK && !vorher.isEmpty()) {
+                zuruecksetzen(vorher);
+            }
+        }
+    }
+}
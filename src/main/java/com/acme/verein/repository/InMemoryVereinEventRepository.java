@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.EventTyp;
+import com.acme.verein.entity.Verein;
+import com.acme.verein.entity.VereinEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acme.verein.entity.EventTyp.DELETE;
+import static com.acme.verein.repository.InMemoryRepository.IN_MEMORY;
+
+/**
+ * Outbox im Hauptspeicher für das Profile "in-memory" mit einem sortierten Index auf der Position und der Menge der
+ * noch nicht veröffentlichten Events.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Repository
+@Primary
+@Profile(IN_MEMORY)
+@Slf4j
+class InMemoryVereinEventRepository extends InMemoryRepository<VereinEvent, Long> implements VereinEventRepository {
+    private final AtomicLong sequenz = new AtomicLong();
+    private final AtomicLong hoechsteId = new AtomicLong();
+    // wie verein_event_position: sinkt nie, auch nicht durch deleteVeroeffentlichtVor()
+    private final AtomicLong hoechstePosition = new AtomicLong();
+    private final NavigableMap<Long, Long> positionIndex = new ConcurrentSkipListMap<>();
+    private final NavigableSet<Long> unveroeffentlicht = new ConcurrentSkipListSet<>();
+    // lazy, weil InMemoryVereinRepository die Outbox verwendet
+    private final ObjectProvider<VereinRepository> vereinRepo;
+
+    InMemoryVereinEventRepository(final ObjectProvider<VereinRepository> vereinRepo) {
+        this.vereinRepo = vereinRepo;
+    }
+
+    @Override
+    public synchronized int insertEvents(final String typ, final Collection<UUID> vereinIds) {
+        final var eventTyp = EventTyp.valueOf(typ);
+        final var repo = vereinRepo.getObject();
+        final List<VereinEvent> events = new ArrayList<>(vereinIds.size());
+        for (final var vereinId : vereinIds) {
+            final var version = repo.findById(vereinId).map(Verein::getVersion);
+            if (version.isPresent()) {
+                // wie bei der Outbox in der DB haben Events vom Typ DELETE keine Version
+                final var event = new VereinEvent(
+                    sequenz.incrementAndGet(),
+                    vereinId,
+                    eventTyp,
+                    eventTyp == DELETE ? null : version.get(),
+                    null,
+                    LocalDateTime.now()
+                );
+                events.add(event);
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // wie in der DB erst nach dem Commit sichtbar, d.h. nach dem Zurueckschreiben der Vereine
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sichtbar(events);
+                }
+            });
+        } else {
+            sichtbar(events);
+        }
+        return events.size();
+    }
+
+    private void sichtbar(final Collection<VereinEvent> events) {
+        events.forEach(event -> {
+            daten.put(event.getId(), event);
+            unveroeffentlicht.add(event.getId());
+            hoechsteId.accumulateAndGet(event.getId(), Math::max);
+        });
+    }
+
+    @Override
+    public boolean sperren(final long key) {
+        // innerhalb einer JVM genuegt die Synchronisation von veroeffentlichen()
+        return true;
+    }
+
+    @Override
+    public synchronized int veroeffentlichen(final int limit) {
+        var position = hoechstePosition.get();
+        var anzahl = 0;
+        while (anzahl < limit && !unveroeffentlicht.isEmpty()) {
+            final var id = unveroeffentlicht.pollFirst();
+            final var event = daten.get(id);
+            if (event == null) {
+                continue;
+            }
+            position++;
+            daten.put(id, new VereinEvent(
+                id,
+                event.getVereinId(),
+                event.getTyp(),
+                event.getVersion(),
+                position,
+                event.getErzeugt()
+            ));
+            positionIndex.put(position, id);
+            anzahl++;
+        }
+        hoechstePosition.set(position);
+        return anzahl;
+    }
+
+    @Override
+    public long findMaxPosition() {
+        return hoechstePosition.get();
+    }
+
+    @Override
+    public long findMinPosition() {
+        return positionIndex.isEmpty() ? hoechstePosition.get() + 1 : positionIndex.firstKey();
+    }
+
+    @Override
+    public String findStand() {
+        return hoechsteId.get() + ":" + findMaxPosition() + ':' + Integer.toHexString(unveroeffentlicht.hashCode());
+    }
+
+    @Override
+    public List<VereinEvent> findVeroeffentlicht(final long nach, final long bis, final int limit) {
+        return positionIndex.subMap(nach, false, bis, true)
+            .values()
+            .stream()
+            .map(daten::get)
+            .filter(Objects::nonNull)
+            .limit(limit)
+            .toList();
+    }
+
+    @Override
+    public List<UUID> findGeloescht(final LocalDateTime nach, final LocalDateTime bis) {
+        return daten.values()
+            .stream()
+            .filter(event -> event.getTyp() == DELETE)
+            .filter(event -> event.getErzeugt().isAfter(nach) && !event.getErzeugt().isAfter(bis))
+            .sorted(Comparator.comparing(VereinEvent::getErzeugt))
+            .map(VereinEvent::getVereinId)
+            .toList();
+    }
+
+    @Override
+    public synchronized int deleteVeroeffentlichtVor(final LocalDateTime grenze) {
+        final var ids = daten.values()
+            .stream()
+            .filter(event -> event.getPosition() != null && event.getErzeugt().isBefore(grenze))
+            .map(VereinEvent::getId)
+            .toList();
+        ids.forEach(this::entfernen);
+        log.debug("deleteVeroeffentlichtVor: {} Events entfernt", ids.size());
+        return ids.size();
+    }
+
+    @Override
+    protected Long getId(final VereinEvent event) {
+        return event.getId();
+    }
+
+    @Override
+    protected VereinEvent kopie(final VereinEvent event) {
+        // Events sind unveraenderlich
+        return event;
+    }
+
+    @Override
+    protected void schreiben(final VereinEvent event) {
+        throw new UnsupportedOperationException("Events werden nur durch insertEvents() geschrieben");
+    }
+
+    @Override
+    protected VereinEvent entfernen(final Long id) {
+        vormerken(id);
+        final var event = daten.remove(id);
+        if (event != null) {
+            unveroeffentlicht.remove(id);
+            if (event.getPosition() != null) {
+                positionIndex.remove(event.getPosition());
+            }
+        }
+        return event;
+    }
+
+    @Override
+    protected void einfuegen(final VereinEvent event) {
+        daten.put(event.getId(), event);
+        if (event.getPosition() == null) {
+            unveroeffentlicht.add(event.getId());
+        } else {
+            positionIndex.put(event.getPosition(), event.getId());
+        }
+    }
+}
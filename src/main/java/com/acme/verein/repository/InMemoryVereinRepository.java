@@ -0,0 +1,709 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Adresse;
+import com.acme.verein.entity.Umsatz;
+import com.acme.verein.entity.UuidV7Generator;
+import com.acme.verein.entity.Verein;
+import com.acme.verein.entity.Verein_;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+
+import java.math.RoundingMode;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.acme.verein.entity.EventTyp.DELETE;
+import static com.acme.verein.repository.InMemoryRepository.IN_MEMORY;
+import static java.util.Locale.ROOT;
+
+/**
+ * Implementierung von VereinRepository im Hauptspeicher für das Profile "in-memory", z.B. um REST, GraphQL und
+ * Security ohne die Latenz von PostgreSQL unter Last zu testen. Beim Start werden die Vereine aus DB geladen. Es gibt
+ * Hash-Indexe für die ID und die Emailadresse sowie sortierte Indexe für Name, PLZ und Ort. Die Suche mit
+ * Specifications ist nur für Specifications von SpecBuilder möglich. Namen werden anders als bei PostgreSQL ohne
+ * Collation sortiert.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Repository
+@Primary
+@Profile(IN_MEMORY)
+@Slf4j
+@SuppressWarnings({"ClassFanOutComplexity", "MethodCount"})
+class InMemoryVereinRepository extends InMemoryRepository<Verein, UUID> implements VereinRepository {
+    private static final UUID MIN_UUID = new UUID(0, 0);
+    private static final int PLZ_REGION_LAENGE = 2;
+
+    private final ConcurrentMap<String, UUID> emailIndex = new ConcurrentHashMap<>();
+    private final NavigableSet<IndexEintrag> nameIndex = new ConcurrentSkipListSet<>(IndexEintrag.ORDNUNG);
+    private final NavigableSet<IndexEintrag> plzIndex = new ConcurrentSkipListSet<>(IndexEintrag.ORDNUNG);
+    // kleingeschrieben wie lower(a.ort) bei der Suche
+    private final NavigableSet<IndexEintrag> ortIndex = new ConcurrentSkipListSet<>(IndexEintrag.ORDNUNG);
+    private final VereinEventRepository eventRepo;
+
+    InMemoryVereinRepository(final VereinEventRepository eventRepo) {
+        this.eventRepo = eventRepo;
+        DB.VEREINE.forEach(verein -> schreiben(kopie(verein)));
+        log.info("InMemoryVereinRepository: {} Vereine", daten.size());
+    }
+
+    /**
+     * Eintrag in einem sortierten Index.
+     *
+     * @param wert Der indexierte Wert
+     * @param id Die ID des Vereins
+     */
+    private record IndexEintrag(String wert, UUID id) {
+        static final Comparator<IndexEintrag> ORDNUNG = Comparator.comparing(IndexEintrag::wert)
+            .thenComparing(IndexEintrag::id, UUID_ORDNUNG);
+    }
+
+    /**
+     * Position eines Vereins in einer Sortierung für die Keyset-Pagination.
+     *
+     * @param wert Der Wert der Sortierspalte oder null
+     * @param id Die ID des Vereins
+     */
+    private record Position(Object wert, UUID id) {
+        // NULL steht wie bei PostgreSQL aufsteigend am Ende
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static final Comparator<Position> ORDNUNG = Comparator
+            .comparing(Position::wert, Comparator.nullsLast((a, b) -> ((Comparable) a).compareTo(b)))
+            .thenComparing(Position::id, UUID_ORDNUNG);
+
+        static Position of(final Verein verein, final Sortierung sortierung) {
+            final Object wert = Verein_.NAME.equals(sortierung.getFeld())
+                ? verein.getName()
+                : verein.getGruendungsdatum();
+            return new Position(wert, verein.getId());
+        }
+
+        static Position of(final Keyset keyset, final Sortierung sortierung) {
+            final var wert = keyset.wert() == null ? null : sortierung.parameterWert(keyset.wert());
+            return new Position(wert, keyset.id());
+        }
+    }
+
+    private record Geloescht(UUID id, String name, LocalDate gruendungsdatum, String plz, String ort)
+        implements GeloeschterVerein {
+        @Override
+        public UUID getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public LocalDate getGruendungsdatum() {
+            return gruendungsdatum;
+        }
+
+        @Override
+        public String getPlz() {
+            return plz;
+        }
+
+        @Override
+        public String getOrt() {
+            return ort;
+        }
+    }
+
+    private record Geaendert(int version, String nameAlt, LocalDate gruendungsdatumAlt) implements Aenderung {
+        @Override
+        public int getVersion() {
+            return version;
+        }
+
+        @Override
+        public String getNameAlt() {
+            return nameAlt;
+        }
+
+        @Override
+        public LocalDate getGruendungsdatumAlt() {
+            return gruendungsdatumAlt;
+        }
+    }
+
+    private record Anzahl(String wert, long anzahl) implements NameAnzahl, FacetteAnzahl {
+        @Override
+        public String getName() {
+            return wert;
+        }
+
+        @Override
+        public String getWert() {
+            return wert;
+        }
+
+        @Override
+        public long getAnzahl() {
+            return anzahl;
+        }
+    }
+
+    @Override
+    public Optional<Verein> findByEmail(final String email) {
+        final var prefix = email.toLowerCase(ROOT);
+        final var vereine = emailIndex.entrySet()
+            .stream()
+            .filter(entry -> entry.getKey().toLowerCase(ROOT).startsWith(prefix))
+            .map(entry -> daten.get(entry.getValue()))
+            .filter(Objects::nonNull)
+            .toList();
+        if (vereine.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, vereine.size());
+        }
+        return vereine.stream().findFirst().map(this::ausgeben);
+    }
+
+    @Override
+    @SuppressWarnings("ParameterNumber")
+    public synchronized Optional<Aenderung> updateIfVersion(
+        final UUID id,
+        final int version,
+        final String name,
+        final String email,
+        final LocalDate gruendungsdatum,
+        final String homepage
+    ) {
+        final var alt = daten.get(id);
+        if (alt == null || alt.getVersion() != version) {
+            return Optional.empty();
+        }
+        pruefeEmail(email, id);
+        final var neu = kopie(alt);
+        neu.setName(name);
+        neu.setEmail(email);
+        neu.setGruendungsdatum(gruendungsdatum);
+        neu.setHomepage(toUrl(homepage));
+        neu.setVersion(version + 1);
+        neu.setAktualisiert(LocalDateTime.now());
+        ersetzen(alt, neu);
+        return Optional.of(new Geaendert(neu.getVersion(), alt.getName(), alt.getGruendungsdatum()));
+    }
+
+    @Override
+    public synchronized List<GeloeschterVerein> deleteMitEvent(final Collection<UUID> ids) {
+        // wie in der CTE: Events nur fuer die tatsaechlich geloeschten Vereine, jeweils einmal; unter der Sperre
+        // werden genau die vorhandenen Vereine entfernt, und insertEvents() benoetigt sie noch
+        final var vorhanden = ids.stream()
+            .distinct()
+            .filter(daten::containsKey)
+            .toList();
+        eventRepo.insertEvents(DELETE.name(), vorhanden);
+        final List<GeloeschterVerein> geloescht = new ArrayList<>(vorhanden.size());
+        vorhanden.forEach(id -> {
+            final var verein = entfernen(id);
+            final var adresse = verein.getAdresse();
+            geloescht.add(new Geloescht(
+                id,
+                verein.getName(),
+                verein.getGruendungsdatum(),
+                adresse == null ? null : adresse.getPlz(),
+                adresse == null ? null : adresse.getOrt()
+            ));
+        });
+        return geloescht;
+    }
+
+    @Override
+    public boolean existsByEmail(final String email) {
+        return emailIndex.containsKey(email);
+    }
+
+    @Override
+    public List<String> findVorhandeneEmails(final Collection<String> emails) {
+        return emails.stream().filter(emailIndex::containsKey).toList();
+    }
+
+    @Override
+    public Stream<String> streamEmails() {
+        return emailIndex.keySet().stream().map(email -> email.toLowerCase(ROOT));
+    }
+
+    @Override
+    public List<Verein> findAllBy(final Pageable pageable) {
+        return seite(daten.values().stream(), pageable).getContent();
+    }
+
+    @Override
+    public Collection<Verein> findByName(final CharSequence name, final Pageable pageable) {
+        final var teil = name.toString().toLowerCase(ROOT);
+        return daten.values()
+            .stream()
+            .filter(verein -> verein.getName().toLowerCase(ROOT).contains(teil))
+            .sorted(Comparator.comparing(Verein::getId, UUID_ORDNUNG))
+            .limit(pageable.getPageSize())
+            .map(this::ausgeben)
+            .toList();
+    }
+
+    @Override
+    public List<VereinUebersicht> findByNameAehnlich(final String name, final Pageable pageable) {
+        record Treffer(Verein verein, double aehnlichkeit) {
+        }
+        return daten.values()
+            .stream()
+            .map(verein -> new Treffer(verein, VereinFilter.aehnlichkeit(verein.getName(), name)))
+            .filter(treffer -> treffer.aehnlichkeit() >= VereinFilter.AEHNLICHKEIT_MIN)
+            .sorted(Comparator.comparingDouble(Treffer::aehnlichkeit)
+                .reversed()
+                .thenComparing(treffer -> treffer.verein().getId(), UUID_ORDNUNG))
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .map(treffer -> toUebersicht(treffer.verein(), VereinUebersicht.FELDER))
+            .toList();
+    }
+
+    @Override
+    public List<String> findNamenByPrefix(final String prefix, final Pageable pageable) {
+        final var prefixLower = prefix.toLowerCase(ROOT);
+        // der Index ist nach dem Namen sortiert, so dass nach "limit" Namen abgebrochen wird
+        return nameIndex.stream()
+            .map(IndexEintrag::wert)
+            .filter(name -> name.toLowerCase(ROOT).startsWith(prefixLower))
+            .distinct()
+            .skip(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .toList();
+    }
+
+    @Override
+    public List<NameAnzahl> countByName() {
+        return List.copyOf(zaehlen(Verein::getName));
+    }
+
+    @Override
+    public List<FacetteAnzahl> countByOrt() {
+        return List.copyOf(zaehlen(verein -> verein.getAdresse().getOrt()));
+    }
+
+    @Override
+    public List<FacetteAnzahl> countByPlzRegion() {
+        return List.copyOf(zaehlen(verein -> verein.getAdresse().getPlz().substring(0, PLZ_REGION_LAENGE)));
+    }
+
+    @Override
+    public List<FacetteAnzahl> countByGruendungsjahr() {
+        return List.copyOf(zaehlen(verein -> verein.getGruendungsdatum() == null
+            ? null
+            : String.valueOf(verein.getGruendungsdatum().getYear())
+        ));
+    }
+
+    @Override
+    public List<Verein> findAktualisiertNach(final LocalDateTime zeitpunkt, final UUID id, final Pageable pageable) {
+        final var comparator = Comparator.comparing(Verein::getAktualisiert)
+            .thenComparing(Verein::getId, UUID_ORDNUNG);
+        final var position = Verein.builder().aktualisiert(zeitpunkt).id(id).build();
+        return daten.values()
+            .stream()
+            .filter(verein -> comparator.compare(verein, position) > 0)
+            .sorted(comparator)
+            .limit(pageable.getPageSize())
+            .map(this::ausgeben)
+            .toList();
+    }
+
+    @Override
+    public Stream<Verein> streamAll() {
+        return daten.values().stream().map(this::ausgeben);
+    }
+
+    @Override
+    public List<VereinUebersicht> findUebersicht(
+        final Map<String, ? extends List<String>> suchkriterien,
+        final Sortierung sortierung,
+        final Keyset after,
+        final Keyset before,
+        final int limit,
+        final Set<String> felder
+    ) {
+        log.debug(
+            "findUebersicht: suchkriterien={}, sortierung={}, after={}, before={}, limit={}, felder={}",
+            suchkriterien, sortierung, after, before, limit, felder
+        );
+        final var keyset = before == null ? after : before;
+        // die vorherige Seite wird in umgekehrter Reihenfolge gelesen
+        final var absteigend = sortierung.isAbsteigend() != (before != null);
+        final var filter = VereinFilter.of(suchkriterien);
+
+        final Stream<Verein> vereine;
+        if (Verein_.NAME.equals(sortierung.getFeld()) && !mitPrefixIndex(suchkriterien)) {
+            // ohne Sortieren: den Namensindex ab dem Keyset durchlaufen
+            var index = absteigend ? nameIndex.descendingSet() : nameIndex;
+            if (keyset != null) {
+                index = index.tailSet(new IndexEintrag(keyset.wert(), keyset.id()), false);
+            }
+            vereine = index.stream().map(eintrag -> daten.get(eintrag.id())).filter(Objects::nonNull).filter(filter);
+        } else {
+            final var ordnung = absteigend ? Position.ORDNUNG.reversed() : Position.ORDNUNG;
+            final var start = keyset == null ? null : Position.of(keyset, sortierung);
+            vereine = kandidaten(suchkriterien)
+                .filter(filter)
+                .filter(verein -> start == null || ordnung.compare(Position.of(verein, sortierung), start) > 0)
+                .sorted(Comparator.comparing(verein -> Position.of(verein, sortierung), ordnung));
+        }
+
+        final var mitGruendungsdatum = felder.contains(Verein_.GRUENDUNGSDATUM)
+            || Verein_.GRUENDUNGSDATUM.equals(sortierung.getFeld());
+        return vereine
+            .limit(limit)
+            .map(verein -> toUebersicht(verein, felder, mitGruendungsdatum))
+            .toList();
+    }
+
+    @Override
+    public List<UmsatzVerteilung> findUmsatzVerteilung(final Map<String, ? extends List<String>> suchkriterien) {
+        log.debug("findUmsatzVerteilung: suchkriterien={}", suchkriterien);
+        return kandidaten(suchkriterien)
+            .filter(VereinFilter.of(suchkriterien))
+            .map(Verein::getUmsatz)
+            .filter(umsatz -> umsatz != null && umsatz.getWaehrung() != null && umsatz.getBetrag() != null)
+            .collect(Collectors.groupingBy(
+                Umsatz::getWaehrung,
+                () -> new TreeMap<>(Comparator.comparing(Currency::getCurrencyCode)),
+                Collectors.toList()
+            ))
+            .entrySet()
+            .stream()
+            .map(entry -> new UmsatzVerteilung(
+                entry.getKey(),
+                entry.getValue().stream().mapToLong(InMemoryVereinRepository::kleinsteEinheit).sorted().toArray()
+            ))
+            .toList();
+    }
+
+    @Override
+    public List<Verein> findAll(final Specification<Verein> spec) {
+        return filtern(spec).map(this::ausgeben).toList();
+    }
+
+    @Override
+    public List<Verein> findAll(final Specification<Verein> spec, final Sort sort) {
+        return sortiert(filtern(spec), sort).map(this::ausgeben).toList();
+    }
+
+    @Override
+    public Page<Verein> findAll(final Specification<Verein> spec, final Pageable pageable) {
+        return seite(filtern(spec), pageable);
+    }
+
+    @Override
+    public Optional<Verein> findOne(final Specification<Verein> spec) {
+        final var vereine = filtern(spec).limit(2).toList();
+        if (vereine.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, vereine.size());
+        }
+        return vereine.stream().findFirst().map(this::ausgeben);
+    }
+
+    @Override
+    public long count(final Specification<Verein> spec) {
+        return filtern(spec).count();
+    }
+
+    /**
+     * Abfrage, ob es Vereine zu einer Specification gibt.
+     *
+     * @param spec Specification von SpecBuilder
+     * @return true, falls es mindestens einen Verein gibt
+     */
+    @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
+    public boolean exists(final Specification<Verein> spec) {
+        return filtern(spec).findAny().isPresent();
+    }
+
+    /**
+     * Vereine zu einer Specification löschen.
+     *
+     * @param spec Specification von SpecBuilder
+     * @return Die Anzahl der gelöschten Vereine
+     */
+    public synchronized long delete(final Specification<Verein> spec) {
+        final var ids = filtern(spec).map(Verein::getId).toList();
+        ids.forEach(this::entfernen);
+        return ids.size();
+    }
+
+    /**
+     * Fluent Queries werden nicht unterstützt.
+     *
+     * @param spec Die Specification
+     * @param queryFunction Die Fluent Query
+     * @param <S> Typ der Entities
+     * @param <R> Typ des Resultats
+     * @return nie
+     */
+    public <S extends Verein, R> R findBy(
+        final Specification<Verein> spec,
+        final Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction
+    ) {
+        throw new UnsupportedOperationException(
+            "Fluent Queries werden im Profile " + IN_MEMORY + " nicht unterstuetzt"
+        );
+    }
+
+    @Override
+    protected UUID getId(final Verein verein) {
+        return verein.getId();
+    }
+
+    @Override
+    protected Verein kopie(final Verein verein) {
+        final var adresse = verein.getAdresse();
+        final var umsatz = verein.getUmsatz();
+        return Verein.builder()
+            .id(verein.getId())
+            .version(verein.getVersion())
+            .name(verein.getName())
+            .email(verein.getEmail())
+            .gruendungsdatum(verein.getGruendungsdatum())
+            .homepage(verein.getHomepage())
+            .erzeugt(verein.getErzeugt())
+            .aktualisiert(verein.getAktualisiert())
+            .adresse(adresse == null
+                ? null
+                : Adresse.builder().plz(adresse.getPlz()).ort(adresse.getOrt()).build())
+            .umsatz(umsatz == null
+                ? null
+                : Umsatz.builder().betrag(umsatz.getBetrag()).waehrung(umsatz.getWaehrung()).build())
+            .build();
+    }
+
+    @Override
+    protected void schreiben(final Verein verein) {
+        final var alt = verein.getId() == null ? null : daten.get(verein.getId());
+        pruefeEmail(verein.getEmail(), verein.getId());
+        final var jetzt = LocalDateTime.now();
+        if (alt == null) {
+            // neuer Verein wie bei persist()
+            if (verein.getId() == null) {
+                verein.setId(UuidV7Generator.next());
+            }
+            verein.setErzeugt(jetzt);
+        } else {
+            // vorhandener Verein wie bei merge() mit @Version
+            if (alt.getVersion() != verein.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Verein.class, verein.getId());
+            }
+            verein.setVersion(alt.getVersion() + 1);
+            verein.setErzeugt(alt.getErzeugt());
+        }
+        verein.setAktualisiert(jetzt);
+        ersetzen(alt, kopie(verein));
+    }
+
+    @Override
+    protected void zurueckschreiben(final Verein verein) {
+        final var alt = daten.get(verein.getId());
+        if (alt == null || !geaendert(alt, verein)) {
+            // geloescht, z.B. durch deleteMitEvent(), oder unveraendert
+            return;
+        }
+        if (alt.getVersion() != verein.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Verein.class, verein.getId());
+        }
+        pruefeEmail(verein.getEmail(), verein.getId());
+        verein.setVersion(alt.getVersion() + 1);
+        verein.setAktualisiert(LocalDateTime.now());
+        ersetzen(alt, kopie(verein));
+    }
+
+    @Override
+    protected Verein entfernen(final UUID id) {
+        final var verein = daten.get(id);
+        if (verein == null) {
+            return null;
+        }
+        vormerken(id);
+        // zuerst die Indexeintraege, damit lesende Threads keine IDs ohne Verein finden
+        indexEntfernen(verein);
+        daten.remove(id);
+        return verein;
+    }
+
+    @Override
+    protected void einfuegen(final Verein verein) {
+        ersetzen(null, verein);
+    }
+
+    private void ersetzen(final Verein alt, final Verein neu) {
+        vormerken(neu.getId());
+        if (alt != null) {
+            indexEntfernen(alt);
+        }
+        daten.put(neu.getId(), neu);
+        final var id = neu.getId();
+        emailIndex.put(neu.getEmail(), id);
+        nameIndex.add(new IndexEintrag(neu.getName(), id));
+        final var adresse = neu.getAdresse();
+        if (adresse != null) {
+            plzIndex.add(new IndexEintrag(adresse.getPlz(), id));
+            ortIndex.add(new IndexEintrag(adresse.getOrt().toLowerCase(ROOT), id));
+        }
+    }
+
+    private void indexEntfernen(final Verein verein) {
+        final var id = verein.getId();
+        emailIndex.remove(verein.getEmail(), id);
+        nameIndex.remove(new IndexEintrag(verein.getName(), id));
+        final var adresse = verein.getAdresse();
+        if (adresse != null) {
+            plzIndex.remove(new IndexEintrag(adresse.getPlz(), id));
+            ortIndex.remove(new IndexEintrag(adresse.getOrt().toLowerCase(ROOT), id));
+        }
+    }
+
+    // wie der Unique Constraint verein_email_key, so dass VereinWriteService die Exception auswerten kann
+    private void pruefeEmail(final String email, final UUID id) {
+        final var vorhanden = emailIndex.get(email);
+        if (vorhanden != null && !vorhanden.equals(id)) {
+            throw new DataIntegrityViolationException("Unique Constraint " + EMAIL_CONSTRAINT + " verletzt: " + email);
+        }
+    }
+
+    private Stream<Verein> filtern(final Specification<Verein> spec) {
+        if (!(spec instanceof SuchSpecification suchSpec)) {
+            throw new UnsupportedOperationException("Nur Specifications von SpecBuilder werden unterstuetzt");
+        }
+        final var suchkriterien = suchSpec.suchkriterien();
+        return kandidaten(suchkriterien).filter(VereinFilter.of(suchkriterien));
+    }
+
+    // bei einem Praefix fuer PLZ oder Ort nur die passenden Vereine aus dem sortierten Index
+    private Stream<Verein> kandidaten(final Map<String, ? extends List<String>> suchkriterien) {
+        final NavigableSet<IndexEintrag> index;
+        final String prefix;
+        if (suchkriterien.containsKey("plz")) {
+            index = plzIndex;
+            prefix = suchkriterien.get("plz").get(0);
+        } else if (suchkriterien.containsKey("ort")) {
+            index = ortIndex;
+            prefix = suchkriterien.get("ort").get(0).toLowerCase(ROOT);
+        } else {
+            return daten.values().stream();
+        }
+        return index.subSet(
+                new IndexEintrag(prefix, MIN_UUID), true,
+                new IndexEintrag(prefix + Character.MAX_VALUE, MIN_UUID), false
+            )
+            .stream()
+            .map(eintrag -> daten.get(eintrag.id()))
+            .filter(Objects::nonNull);
+    }
+
+    // wie cast(betrag * 100 AS Long) in SuchQueryCache
+    private static long kleinsteEinheit(final Umsatz umsatz) {
+        return umsatz.getBetrag()
+            .movePointRight(Umsatz.NACHKOMMASTELLEN)
+            .setScale(0, RoundingMode.HALF_UP)
+            .longValueExact();
+    }
+
+    private static boolean mitPrefixIndex(final Map<String, ? extends List<String>> suchkriterien) {
+        return suchkriterien.containsKey("plz") || suchkriterien.containsKey("ort");
+    }
+
+    private List<Anzahl> zaehlen(final Function<Verein, String> wert) {
+        return daten.values()
+            .stream()
+            .map(wert)
+            .filter(Objects::nonNull)
+            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+            .entrySet()
+            .stream()
+            .map(entry -> new Anzahl(entry.getKey(), entry.getValue()))
+            .toList();
+    }
+
+    private static boolean geaendert(final Verein alt, final Verein neu) {
+        // URL.equals() wuerde den Hostnamen aufloesen
+        return !Objects.equals(alt.getName(), neu.getName())
+            || !Objects.equals(alt.getEmail(), neu.getEmail())
+            || !Objects.equals(alt.getGruendungsdatum(), neu.getGruendungsdatum())
+            || !Objects.equals(Objects.toString(alt.getHomepage(), null), Objects.toString(neu.getHomepage(), null))
+            || !Objects.equals(Objects.toString(alt.getAdresse(), null), Objects.toString(neu.getAdresse(), null))
+            || !Objects.equals(Objects.toString(alt.getUmsatz(), null), Objects.toString(neu.getUmsatz(), null));
+    }
+
+    private static URL toUrl(final String homepage) {
+        try {
+            return homepage == null ? null : new URL(homepage);
+        } catch (final MalformedURLException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    private static VereinUebersicht toUebersicht(final Verein verein, final Set<String> felder) {
+        return toUebersicht(verein, felder, true);
+    }
+
+    private static VereinUebersicht toUebersicht(
+        final Verein verein,
+        final Set<String> felder,
+        final boolean mitGruendungsdatum
+    ) {
+        final var adresse = felder.contains(Verein_.ADRESSE) ? verein.getAdresse() : null;
+        return new VereinUebersicht(
+            verein.getId(),
+            verein.getName(),
+            felder.contains(Verein_.EMAIL) ? verein.getEmail() : null,
+            mitGruendungsdatum ? verein.getGruendungsdatum() : null,
+            felder.contains(Verein_.HOMEPAGE) ? verein.getHomepage() : null,
+            adresse == null ? null : adresse.getPlz(),
+            adresse == null ? null : adresse.getOrt()
+        );
+    }
+}
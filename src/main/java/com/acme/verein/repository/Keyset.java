@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position innerhalb der sortierten Vereine für die Keyset-Pagination ("Seek Method"), z.B. bei der Sortierung nach
+ * (name, id). Der Cursor enthält die Sortierung, damit er nicht mit einer anderen Sortierung verwendet wird.
+ *
+ * @param sortierung Die Sortierung, zu der das Keyset gehört
+ * @param wert Der Wert der Sortierspalte des Vereins an der Position oder null, z.B. beim Gründungsdatum
+ * @param id Die ID des Vereins an der Position
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record Keyset(Sortierung sortierung, String wert, UUID id) {
+    private static final char TRENNER = ':';
+    private static final char MIT_WERT = '=';
+    private static final char OHNE_WERT = '!';
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * Keyset zu einem Verein ermitteln.
+     *
+     * @param verein Der Verein an der Position
+     * @param sortierung Die Sortierung, zu der das Keyset passt
+     * @return Das Keyset mit dem Wert der Sortierspalte und der ID des Vereins
+     */
+    public static Keyset of(final VereinUebersicht verein, final Sortierung sortierung) {
+        return new Keyset(sortierung, sortierung.keysetWert(verein), verein.id());
+    }
+
+    /**
+     * Keyset aus einem opaken Cursor, z.B. aus einem Query-Parameter, rekonstruieren.
+     *
+     * @param cursor Der Cursor, der mit encode() erzeugt wurde
+     * @return Das zugehörige Keyset
+     * @throws IllegalArgumentException Falls der Cursor syntaktisch ungültig ist oder der Wert nicht zur Sortierung
+     *      passt
+     */
+    public static Keyset decode(final String cursor) {
+        // Aufbau: SORTIERUNG:<ID>=<Wert> bzw. SORTIERUNG:<ID>! fuer null, d.h. ein leerer Name bleibt ein leerer Wert
+        final var decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        final var trenner = decoded.indexOf(TRENNER);
+        final var markerPos = trenner + 1 + UUID_LENGTH;
+        if (trenner < 0 || decoded.length() <= markerPos) {
+            throw new IllegalArgumentException("Ungueltiger Cursor: " + cursor);
+        }
+        final var sortierung = Sortierung.valueOf(decoded.substring(0, trenner));
+        final var id = UUID.fromString(decoded.substring(trenner + 1, markerPos));
+        final var marker = decoded.charAt(markerPos);
+        final String wert;
+        if (marker == OHNE_WERT && decoded.length() == markerPos + 1 && sortierung.isNullable()) {
+            wert = null;
+        } else if (marker == MIT_WERT) {
+            wert = decoded.substring(markerPos + 1);
+            try {
+                sortierung.parameterWert(wert);
+            } catch (final DateTimeParseException ex) {
+                throw new IllegalArgumentException("Ungueltiger Wert im Cursor: " + cursor, ex);
+            }
+        } else {
+            throw new IllegalArgumentException("Ungueltiger Cursor: " + cursor);
+        }
+        return new Keyset(sortierung, wert, id);
+    }
+
+    /**
+     * Das Keyset als opaken Cursor für URIs kodieren.
+     *
+     * @return Der Cursor in Base64 für URLs
+     */
+    public String encode() {
+        final var raw = sortierung.name() + TRENNER + id + (wert == null ? String.valueOf(OHNE_WERT) : MIT_WERT + wert);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(UTF_8));
+    }
+}
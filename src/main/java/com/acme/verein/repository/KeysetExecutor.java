@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fragment-Interface für VereinRepository, um Suchen mit Keyset-Pagination und einer maximalen Anzahl an Datensätzen
+ * auszuführen, d.h. ohne OFFSET und ohne zusätzliche COUNT-Query wie bei Page. Das Resultat sind Projektionen statt
+ * Entities.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public interface KeysetExecutor {
+    /**
+     * Die Namen der zulässigen Suchkriterien.
+     */
+    Set<String> SUCHKRITERIEN = Set.of(
+        "name", "nameAehnlich", "email", "plz", "ort", "gruendungsdatumVon", "gruendungsdatumBis", "waehrung",
+        "umsatzMin", "umsatzMax"
+    );
+
+    /**
+     * Vereine zu Suchkriterien in einer Sortierung suchen, wobei nur die Spalten der angeforderten Felder und der
+     * Sortierung gelesen werden. PLZ und Ort werden nur dann gelesen, wenn die Adresse angefordert ist. Die Query wird
+     * pro Kombination der Suchkriterien nur einmal erstellt und die Werte als Parameter gebunden.
+     *
+     * @param suchkriterien Syntaktisch korrekte Suchkriterien aus SUCHKRITERIEN mit jeweils genau einem Wert
+     * @param sortierung Die Sortierung
+     * @param after Keyset, nach dem gelesen wird, oder null
+     * @param before Keyset, vor dem in umgekehrter Sortierung gelesen wird, oder null
+     * @param limit Maximale Anzahl der gefundenen Vereine
+     * @param felder Die angeforderten Felder aus VereinUebersicht.FELDER
+     * @return Die gefundenen Vereine als Projektion oder eine leere Liste
+     */
+    List<VereinUebersicht> findUebersicht(
+        Map<String, ? extends List<String>> suchkriterien,
+        Sortierung sortierung,
+        Keyset after,
+        Keyset before,
+        int limit,
+        Set<String> felder
+    );
+}
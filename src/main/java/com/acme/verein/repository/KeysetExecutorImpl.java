@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein_;
+import com.acme.verein.repository.SuchQueryCache.QueryShape;
+import com.acme.verein.repository.SuchQueryCache.Richtung;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.acme.verein.repository.SuchQueryCache.KEYSET_ID;
+import static com.acme.verein.repository.SuchQueryCache.KEYSET_WERT;
+import static com.acme.verein.repository.SuchQueryCache.ORT;
+import static com.acme.verein.repository.SuchQueryCache.PLZ;
+import static com.acme.verein.repository.SuchQueryCache.UMSATZ_MAX;
+import static com.acme.verein.repository.SuchQueryCache.UMSATZ_MIN;
+import static com.acme.verein.repository.SuchQueryCache.WAEHRUNG;
+
+/**
+ * Implementierung des Fragment-Interface KeysetExecutor mit JPQL-Strings aus SuchQueryCache. Der Name muss mit
+ * "Impl" enden, damit Spring Data die Klasse zum Interface findet.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RequiredArgsConstructor
+@Slf4j
+class KeysetExecutorImpl implements KeysetExecutor {
+    private final SuchQueryCache queryCache;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<VereinUebersicht> findUebersicht(
+        final Map<String, ? extends List<String>> suchkriterien,
+        final Sortierung sortierung,
+        final Keyset after,
+        final Keyset before,
+        final int limit,
+        final Set<String> felder
+    ) {
+        log.debug(
+            "findUebersicht: suchkriterien={}, sortierung={}, after={}, before={}, limit={}, felder={}",
+            suchkriterien, sortierung, after, before, limit, felder
+        );
+        final Richtung richtung;
+        final Keyset keyset;
+        if (before != null) {
+            richtung = Richtung.VOR;
+            keyset = before;
+        } else if (after != null) {
+            richtung = Richtung.NACH;
+            keyset = after;
+        } else {
+            richtung = Richtung.ERSTE;
+            keyset = null;
+        }
+
+        final var keysetNull = keyset != null && keyset.wert() == null;
+        final var shape = QueryShape.of(suchkriterien.keySet(), sortierung, richtung, keysetNull, felder);
+        final var query = em.createQuery(queryCache.jpql(shape), Tuple.class).setMaxResults(limit);
+        suchkriterien.forEach((name, werte) -> query.setParameter(name, parameterWert(name, werte.get(0))));
+        if (keyset != null) {
+            if (!keysetNull) {
+                query.setParameter(KEYSET_WERT, sortierung.parameterWert(keyset.wert()));
+            }
+            query.setParameter(KEYSET_ID, keyset.id());
+        }
+
+        final var mitGruendungsdatum = felder.contains(Verein_.GRUENDUNGSDATUM)
+            || Verein_.GRUENDUNGSDATUM.equals(sortierung.getFeld());
+        return queryCache.timer(shape).record(() -> query.getResultStream()
+            .map(tuple -> toUebersicht(tuple, felder, mitGruendungsdatum))
+            .toList()
+        );
+    }
+
+    static Object parameterWert(final String name, final String wert) {
+        return switch (name) {
+            case "name", "email" -> '%' + wert + '%';
+            case PLZ, ORT -> wert + '%';
+            case "gruendungsdatumVon", "gruendungsdatumBis" -> LocalDate.parse(wert);
+            case WAEHRUNG -> Currency.getInstance(wert);
+            case UMSATZ_MIN, UMSATZ_MAX -> new BigDecimal(wert);
+            default -> wert;
+        };
+    }
+
+    private static VereinUebersicht toUebersicht(
+        final Tuple tuple,
+        final Set<String> felder,
+        final boolean mitGruendungsdatum
+    ) {
+        final var adresse = felder.contains(Verein_.ADRESSE);
+        return new VereinUebersicht(
+            tuple.get(Verein_.ID, UUID.class),
+            tuple.get(Verein_.NAME, String.class),
+            felder.contains(Verein_.EMAIL) ? tuple.get(Verein_.EMAIL, String.class) : null,
+            mitGruendungsdatum ? tuple.get(Verein_.GRUENDUNGSDATUM, LocalDate.class) : null,
+            felder.contains(Verein_.HOMEPAGE) ? tuple.get(Verein_.HOMEPAGE, URL.class) : null,
+            adresse ? tuple.get(PLZ, String.class) : null,
+            adresse ? tuple.get(ORT, String.class) : null
+        );
+    }
+}
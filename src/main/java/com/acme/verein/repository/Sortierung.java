@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein_;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Zulässige Sortierungen für die Suche. Zu jeder Sortierung gibt es einen Index mit der Spalte und der ID, so dass
+ * eine Seite ohne Sortieren im Hauptspeicher direkt aus dem Index gelesen werden kann. Die ID ist das zweite
+ * Sortierkriterium, damit das Keyset eindeutig ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public enum Sortierung {
+    /**
+     * Aufsteigend nach dem Namen mit dem Index verein_name_idx.
+     */
+    NAME(Verein_.NAME, false),
+
+    /**
+     * Absteigend nach dem Namen mit dem Index verein_name_idx.
+     */
+    NAME_DESC(Verein_.NAME, true),
+
+    /**
+     * Aufsteigend nach dem Gründungsdatum mit dem Index verein_gruendungsdatum_idx. Vereine ohne Gründungsdatum
+     * stehen am Ende.
+     */
+    GRUENDUNGSDATUM(Verein_.GRUENDUNGSDATUM, false),
+
+    /**
+     * Absteigend nach dem Gründungsdatum mit dem Index verein_gruendungsdatum_idx. Vereine ohne Gründungsdatum
+     * stehen am Anfang.
+     */
+    GRUENDUNGSDATUM_DESC(Verein_.GRUENDUNGSDATUM, true);
+
+    private static final String DESC = ",desc";
+    private static final String ASC = ",asc";
+
+    private final String feld;
+    private final boolean absteigend;
+
+    Sortierung(final String feld, final boolean absteigend) {
+        this.feld = feld;
+        this.absteigend = absteigend;
+    }
+
+    /**
+     * Sortierung zu einem Wert wie bei Spring Data ermitteln, z.B. "gruendungsdatum" oder "gruendungsdatum,desc".
+     *
+     * @param value Der Wert, z.B. aus dem Query-Parameter "sort"
+     * @return Die passende Sortierung oder ein leeres Optional
+     */
+    public static Optional<Sortierung> of(final String value) {
+        final var lower = value.strip().toLowerCase(ROOT);
+        final boolean desc = lower.endsWith(DESC);
+        final String feld;
+        if (desc) {
+            feld = lower.substring(0, lower.length() - DESC.length());
+        } else if (lower.endsWith(ASC)) {
+            feld = lower.substring(0, lower.length() - ASC.length());
+        } else {
+            feld = lower;
+        }
+        return Arrays.stream(values())
+            .filter(sortierung -> sortierung.feld.equals(feld) && sortierung.absteigend == desc)
+            .findFirst();
+    }
+
+    /**
+     * Das Feld, nach dem sortiert wird.
+     *
+     * @return Name des Feldes, z.B. "name"
+     */
+    public String getFeld() {
+        return feld;
+    }
+
+    /**
+     * Abfrage, ob absteigend sortiert wird.
+     *
+     * @return true, falls absteigend sortiert wird
+     */
+    public boolean isAbsteigend() {
+        return absteigend;
+    }
+
+    /**
+     * Abfrage, ob die Spalte NULL-Werte enthalten kann, die beim Keyset gesondert behandelt werden müssen.
+     *
+     * @return true, falls die Spalte NULL-Werte enthalten kann
+     */
+    public boolean isNullable() {
+        return Verein_.GRUENDUNGSDATUM.equals(feld);
+    }
+
+    /**
+     * Die Sortierung für Spring Data, z.B. für Specifications.
+     *
+     * @return Die Sortierung nach dem Feld und der ID
+     */
+    public Sort toSort() {
+        return Sort.by(absteigend ? Sort.Direction.DESC : Sort.Direction.ASC, feld, Verein_.ID);
+    }
+
+    /**
+     * Der Wert eines Vereins für das Keyset.
+     *
+     * @param verein Der Verein
+     * @return Der Wert als String oder null
+     */
+    String keysetWert(final VereinUebersicht verein) {
+        if (Verein_.NAME.equals(feld)) {
+            return verein.name();
+        }
+        final var gruendungsdatum = verein.gruendungsdatum();
+        return gruendungsdatum == null ? null : gruendungsdatum.toString();
+    }
+
+    /**
+     * Den Wert aus einem Keyset in den Typ der Spalte konvertieren.
+     *
+     * @param wert Der Wert aus dem Keyset
+     * @return Der konvertierte Wert für einen Query-Parameter
+     * @throws java.time.format.DateTimeParseException Falls der Wert kein Datum ist
+     */
+    Object parameterWert(final String wert) {
+        return Verein_.NAME.equals(feld) ? wert : LocalDate.parse(wert);
+    }
+}
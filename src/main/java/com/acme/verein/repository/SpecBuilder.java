@@ -17,14 +17,23 @@
 package com.acme.verein.repository;
 
 import com.acme.verein.entity.*;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 
+import static com.acme.verein.repository.TrigramFunctionContributor.TRGM_SIMILAR;
+
 /**
- * Singleton-Klasse, um Specifications für Queries in Spring Data zu bauen.
+ * Singleton-Klasse, um Specifications für Queries in Spring Data zu bauen. Die Werte werden als Parameter gebunden
+ * statt als Literale in den SQL-String eingebettet, so dass die Datenbank das Prepared Statement wiederverwenden kann.
+ * Die Suche mit Keyset-Pagination verwendet stattdessen die JPQL-Strings aus SuchQueryCache.
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
@@ -55,7 +64,7 @@ public class SpecBuilder {
             return Optional.empty();
         }
 
-        return Optional.of(Specification.allOf(specs));
+        return Optional.of(new SuchSpecification(Specification.allOf(specs), Map.copyOf(queryParams)));
     }
 
 
@@ -71,9 +80,15 @@ public class SpecBuilder {
         final var value = paramValues.get(0);
         return switch (paramName) {
             case "name" -> name(value);
+            case "nameAehnlich" -> nameAehnlich(value);
             case "email" -> email(value);
             case "plz" -> plz(value);
             case "ort" -> ort(value);
+            case "gruendungsdatumVon" -> gruendungsdatumVon(LocalDate.parse(value));
+            case "gruendungsdatumBis" -> gruendungsdatumBis(LocalDate.parse(value));
+            case "waehrung" -> waehrung(Currency.getInstance(value));
+            case "umsatzMin" -> umsatzMin(new BigDecimal(value));
+            case "umsatzMax" -> umsatzMax(new BigDecimal(value));
             default -> null;
         };
     }
@@ -85,22 +100,28 @@ public class SpecBuilder {
         // builder ist jakarta.persistence.criteria.CriteriaBuilder
         // https://www.logicbig.com/tutorials/java-ee-tutorial/jpa/meta-model.html
         return (root, query, builder) -> {
-            root.fetch(Verein_.adresse);
-            root.fetch(Verein_.interessen);
             return builder.like(
                 builder.lower(root.get(Verein_.name)),
-                builder.lower(builder.literal("%" + teil + '%'))
+                builder.lower(wert(builder, "%" + teil + '%'))
             );
         };
     }
 
+    private Specification<Verein> nameAehnlich(final String name) {
+        // Operator % von pg_trgm, damit der Trigramm-Index verwendet werden kann
+        return (root, query, builder) -> builder.isTrue(builder.function(
+            TRGM_SIMILAR,
+            Boolean.class,
+            builder.lower(root.get(Verein_.name)),
+            builder.lower(wert(builder, name))
+        ));
+    }
+
     private Specification<Verein> email(final String teil) {
         return (root, query, builder) -> {
-            root.fetch(Verein_.adresse);
-            root.fetch(Verein_.interessen);
             return builder.like(
                 builder.lower(root.get(Verein_.email)),
-                builder.lower(builder.literal("%" + teil + '%'))
+                builder.lower(wert(builder, "%" + teil + '%'))
             );
         };
     }
@@ -108,20 +129,44 @@ public class SpecBuilder {
 
     private Specification<Verein> plz(final String prefix) {
         return (root, query, builder) -> {
-            root.fetch(Verein_.adresse);
-            root.fetch(Verein_.interessen);
-            return builder.like(root.get(Verein_.adresse).get(Adresse_.plz), prefix + '%');
+            return builder.like(root.get(Verein_.adresse).get(Adresse_.plz), wert(builder, prefix + '%'));
         };
     }
 
     private Specification<Verein> ort(final String prefix) {
         return (root, query, builder) -> {
-            root.fetch(Verein_.adresse);
-            root.fetch(Verein_.interessen);
             return builder.like(
                 builder.lower(root.get(Verein_.adresse).get(Adresse_.ort)),
-                builder.lower(builder.literal(prefix + '%'))
+                builder.lower(wert(builder, prefix + '%'))
             );
         };
     }
+
+    private Specification<Verein> gruendungsdatumVon(final LocalDate von) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(Verein_.gruendungsdatum), von);
+    }
+
+    private Specification<Verein> gruendungsdatumBis(final LocalDate bis) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(Verein_.gruendungsdatum), bis);
+    }
+
+    // Betraege sind nur innerhalb derselben Waehrung vergleichbar: umsatzMin und umsatzMax nur zusammen mit waehrung
+    private Specification<Verein> waehrung(final Currency waehrung) {
+        return (root, query, builder) -> builder.equal(root.get(Verein_.umsatz).get(Umsatz_.waehrung), waehrung);
+    }
+
+    private Specification<Verein> umsatzMin(final BigDecimal min) {
+        return (root, query, builder) ->
+            builder.greaterThanOrEqualTo(root.get(Verein_.umsatz).get(Umsatz_.betrag), min);
+    }
+
+    private Specification<Verein> umsatzMax(final BigDecimal max) {
+        return (root, query, builder) ->
+            builder.lessThanOrEqualTo(root.get(Verein_.umsatz).get(Umsatz_.betrag), max);
+    }
+
+    // HibernateCriteriaBuilder.value() bindet einen Parameter, CriteriaBuilder.literal() dagegen bettet ein Literal ein
+    private static Expression<String> wert(final CriteriaBuilder builder, final String wert) {
+        return ((HibernateCriteriaBuilder) builder).value(wert);
+    }
 }
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Umsatz;
+import com.acme.verein.entity.Verein_;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Cache für die JPQL-Strings der Suche mit Keyset-Pagination. Der Schlüssel ist die "Form" einer Suche, d.h. die
+ * sortierten Namen der Suchkriterien, die Sortierung, die Richtung der Pagination und die angeforderten Felder. Die
+ * Werte werden ausschließlich als Parameter gebunden, so dass es pro Form genau einen JPQL-String gibt. Dadurch kann
+ * Hibernate die übersetzte Query aus seinem Query Plan Cache wiederverwenden und der JDBC-Treiber ein serverseitiges
+ * Prepared Statement.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Slf4j
+class SuchQueryCache {
+    /**
+     * Parameter für den Wert der Sortierspalte im Keyset.
+     */
+    static final String KEYSET_WERT = "keysetWert";
+
+    /**
+     * Parameter für die ID des Keysets.
+     */
+    static final String KEYSET_ID = "keysetId";
+
+    /**
+     * Alias für die PLZ der Adresse im Resultat.
+     */
+    static final String PLZ = "plz";
+
+    /**
+     * Suchkriterium für die Währung, auf die sich umsatzMin und umsatzMax beziehen.
+     */
+    static final String WAEHRUNG = "waehrung";
+
+    /**
+     * Suchkriterium für den Mindestbetrag beim Umsatz.
+     */
+    static final String UMSATZ_MIN = "umsatzMin";
+
+    /**
+     * Suchkriterium für den Höchstbetrag beim Umsatz.
+     */
+    static final String UMSATZ_MAX = "umsatzMax";
+
+    /**
+     * Alias für den Ort der Adresse im Resultat.
+     */
+    static final String ORT = "ort";
+
+    private static final String METRIC_NAME = "verein.query";
+    private static final String TAG_SHAPE = "shape";
+    // Faktor fuer den Betrag in der kleinsten Einheit, z.B. 100 fuer Cent
+    private static final String UMSATZ_FAKTOR = BigDecimal.ONE.movePointRight(Umsatz.NACHKOMMASTELLEN).toPlainString();
+
+    private final ConcurrentMap<QueryShape, String> queries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, String> umsatzQueries = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final Counter hit;
+    private final Counter miss;
+
+    SuchQueryCache(final MeterRegistry registry) {
+        this.registry = registry;
+        hit = registry.counter(METRIC_NAME + ".cache", "ergebnis", "hit");
+        miss = registry.counter(METRIC_NAME + ".cache", "ergebnis", "miss");
+    }
+
+    /**
+     * Richtung der Keyset-Pagination.
+     */
+    enum Richtung {
+        /**
+         * Erste Seite ohne Keyset.
+         */
+        ERSTE,
+
+        /**
+         * Seite nach einem Keyset.
+         */
+        NACH,
+
+        /**
+         * Seite vor einem Keyset, die absteigend gelesen wird.
+         */
+        VOR
+    }
+
+    /**
+     * Form einer Suche als Schlüssel für den Cache.
+     *
+     * @param kriterien Sortierte Namen der Suchkriterien
+     * @param sortierung Die Sortierung
+     * @param richtung Richtung der Pagination
+     * @param keysetNull true, falls der Wert im Keyset null ist
+     * @param felder Die angeforderten Felder
+     */
+    record QueryShape(
+        List<String> kriterien,
+        Sortierung sortierung,
+        Richtung richtung,
+        boolean keysetNull,
+        Set<String> felder
+    ) {
+        @SuppressWarnings("ParameterNumber")
+        static QueryShape of(
+            final Collection<String> kriterien,
+            final Sortierung sortierung,
+            final Richtung richtung,
+            final boolean keysetNull,
+            final Set<String> felder
+        ) {
+            return new QueryShape(
+                kriterien.stream().sorted().toList(),
+                sortierung,
+                richtung,
+                keysetNull,
+                Set.copyOf(felder)
+            );
+        }
+
+        /**
+         * Name der Form für die Metriken. Die Felder sind nicht enthalten, um die Anzahl der Zeitreihen klein zu
+         * halten.
+         *
+         * @return Name der Form, z.B. "name+plz/name_desc/nach"
+         */
+        String name() {
+            final var kriterienStr = kriterien.isEmpty() ? "alle" : String.join("+", kriterien);
+            return kriterienStr + '/' + sortierung.name().toLowerCase(ROOT) + '/' + richtung.name().toLowerCase(ROOT);
+        }
+    }
+
+    /**
+     * Den JPQL-String zu einer Form aus dem Cache lesen oder beim ersten Mal erstellen.
+     *
+     * @param shape Die Form der Suche
+     * @return Der JPQL-String
+     */
+    String jpql(final QueryShape shape) {
+        final var jpql = queries.get(shape);
+        if (jpql != null) {
+            hit.increment();
+            return jpql;
+        }
+        miss.increment();
+        return queries.computeIfAbsent(shape, SuchQueryCache::render);
+    }
+
+    /**
+     * Den JPQL-String für die Umsätze zu Suchkriterien aus dem Cache lesen oder beim ersten Mal erstellen. Die
+     * Beträge werden in der DB in die kleinste Einheit als long umgerechnet und nach (waehrung, betrag) sortiert, so
+     * dass der Index verein_waehrung_betrag_idx verwendet werden kann.
+     *
+     * @param kriterien Die Namen der Suchkriterien
+     * @return Der JPQL-String mit den Spalten waehrung und betrag
+     */
+    String umsatzJpql(final Collection<String> kriterien) {
+        return umsatzQueries.computeIfAbsent(kriterien.stream().sorted().toList(), SuchQueryCache::renderUmsatz);
+    }
+
+    /**
+     * Timer für die Latenz einer Form.
+     *
+     * @param shape Die Form der Suche
+     * @return Der Timer, der von der MeterRegistry wiederverwendet wird
+     */
+    Timer timer(final QueryShape shape) {
+        return Timer.builder(METRIC_NAME)
+            .description("Latenz der Suche pro Form der Query")
+            .tag(TAG_SHAPE, shape.name())
+            .register(registry);
+    }
+
+    @SuppressWarnings({"CyclomaticComplexity", "NPathComplexity"})
+    private static String render(final QueryShape shape) {
+        final var felder = shape.felder();
+        final var jpql = new StringBuilder(256)
+            .append("SELECT v.id AS ").append(Verein_.ID)
+            .append(", v.name AS ").append(Verein_.NAME);
+        if (felder.contains(Verein_.EMAIL)) {
+            jpql.append(", v.email AS ").append(Verein_.EMAIL);
+        }
+        if (felder.contains(Verein_.HOMEPAGE)) {
+            jpql.append(", v.homepage AS ").append(Verein_.HOMEPAGE);
+        }
+        final var sortierung = shape.sortierung();
+        // die Spalte fuer die Sortierung wird immer gelesen, weil sie fuer das Keyset benoetigt wird
+        if (sortierung.getFeld().equals(Verein_.GRUENDUNGSDATUM) || felder.contains(Verein_.GRUENDUNGSDATUM)) {
+            jpql.append(", v.gruendungsdatum AS ").append(Verein_.GRUENDUNGSDATUM);
+        }
+        final var mitAdresse = felder.contains(Verein_.ADRESSE);
+        if (mitAdresse) {
+            jpql.append(", v.adresse.plz AS ").append(PLZ).append(", v.adresse.ort AS ").append(ORT);
+        }
+
+        // Adresse und Umsatz sind eingebettet, d.h. Spalten von verein, und erfordern keinen Join
+        jpql.append(" FROM Verein v");
+        final var kriterien = shape.kriterien();
+
+        final List<String> bedingungen = new ArrayList<>(kriterien.size() + 1);
+        kriterien.forEach(kriterium -> bedingungen.add(bedingung(kriterium)));
+        // die vorherige Seite wird in umgekehrter Reihenfolge gelesen
+        final var absteigend = sortierung.isAbsteigend() != (shape.richtung() == Richtung.VOR);
+        if (shape.richtung() != Richtung.ERSTE) {
+            bedingungen.add(keysetBedingung("v." + sortierung.getFeld(), sortierung, absteigend, shape.keysetNull()));
+        }
+        if (!bedingungen.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", bedingungen));
+        }
+
+        // ohne NULLS FIRST/LAST: PostgreSQL sortiert NULL bei ASC ans Ende und bei DESC an den Anfang wie im Index
+        final var direction = absteigend ? " DESC" : "";
+        jpql.append(" ORDER BY v.").append(sortierung.getFeld()).append(direction).append(", v.id").append(direction);
+        final var result = jpql.toString();
+        log.debug("render: {} -> {}", shape, result);
+        return result;
+    }
+
+    private static String renderUmsatz(final List<String> kriterien) {
+        final var jpql = new StringBuilder(256)
+            .append("SELECT v.umsatz.waehrung, cast(v.umsatz.betrag * ").append(UMSATZ_FAKTOR).append(" AS Long)")
+            .append(" FROM Verein v WHERE v.umsatz.waehrung IS NOT NULL");
+        kriterien.forEach(kriterium -> jpql.append(" AND ").append(bedingung(kriterium)));
+        jpql.append(" ORDER BY v.umsatz.waehrung, v.umsatz.betrag");
+        final var result = jpql.toString();
+        log.debug("renderUmsatz: {} -> {}", kriterien, result);
+        return result;
+    }
+
+    private static String bedingung(final String kriterium) {
+        return switch (kriterium) {
+            case "name" -> "lower(v.name) LIKE lower(:name)";
+            // Operator % von pg_trgm, damit der Trigramm-Index verwendet werden kann
+            case "nameAehnlich" -> "trgm_similar(lower(v.name), lower(:nameAehnlich)) = true";
+            case "email" -> "lower(v.email) LIKE lower(:email)";
+            case PLZ -> "v.adresse.plz LIKE :plz";
+            case ORT -> "lower(v.adresse.ort) LIKE lower(:ort)";
+            case "gruendungsdatumVon" -> "v.gruendungsdatum >= :gruendungsdatumVon";
+            case "gruendungsdatumBis" -> "v.gruendungsdatum <= :gruendungsdatumBis";
+            case WAEHRUNG -> "v.umsatz.waehrung = :waehrung";
+            case UMSATZ_MIN -> "v.umsatz.betrag >= :umsatzMin";
+            case UMSATZ_MAX -> "v.umsatz.betrag <= :umsatzMax";
+            default -> throw new IllegalArgumentException("Unbekanntes Suchkriterium: " + kriterium);
+        };
+    }
+
+    // Bedingung fuer die Zeilen nach dem Keyset in der Reihenfolge, in der gelesen wird
+    private static String keysetBedingung(
+        final String spalte,
+        final Sortierung sortierung,
+        final boolean absteigend,
+        final boolean keysetNull
+    ) {
+        final var op = absteigend ? "<" : ">";
+        final var wert = ":" + KEYSET_WERT;
+        final var id = "v.id " + op + " :" + KEYSET_ID;
+        if (!sortierung.isNullable()) {
+            // die redundante Bedingung mit >= bzw. <= ermoeglicht einen Range-Scan auf dem Index
+            return String.format("%s %s= %s AND (%s %s %s OR %s)", spalte, op, wert, spalte, op, wert, id);
+        }
+        if (keysetNull) {
+            // aufsteigend folgen nach NULL nur weitere NULL-Werte, absteigend alle Werte ungleich NULL
+            return absteigend
+                ? String.format("(%s IS NOT NULL OR %s)", spalte, id)
+                : String.format("%s IS NULL AND %s", spalte, id);
+        }
+        final var nachWert = String.format("%s %s %s OR (%s = %s AND %s)", spalte, op, wert, spalte, wert, id);
+        return absteigend
+            ? '(' + nachWert + ')'
+            : String.format("(%s OR %s IS NULL)", nachWert, spalte);
+    }
+}
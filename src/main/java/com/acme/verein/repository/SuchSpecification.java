@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Specification von SpecBuilder, die zusätzlich die Suchkriterien enthält, damit InMemoryVereinRepository ohne
+ * Criteria API filtern kann.
+ *
+ * @param spec Die Specification für JPA
+ * @param suchkriterien Die Suchkriterien, aus denen die Specification gebaut wurde
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+record SuchSpecification(Specification<Verein> spec, Map<String, List<String>> suchkriterien)
+    implements Specification<Verein> {
+    @Override
+    public Predicate toPredicate(
+        final Root<Verein> root,
+        final CriteriaQuery<?> query,
+        final CriteriaBuilder builder
+    ) {
+        return spec.toPredicate(root, query, builder);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position für die Delta-Synchronisation, d.h. ein Keyset (aktualisiert, id), nach dem die geänderten Vereine
+ * gelesen werden.
+ *
+ * @param zeitpunkt Der Zeitpunkt der letzten Änderung an der Position
+ * @param id Die ID des Vereins an der Position oder die Nil-UUID, um ab dem Zeitpunkt einschließlich zu lesen
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record SyncToken(LocalDateTime zeitpunkt, UUID id) {
+    /**
+     * Die kleinste UUID, um alle Vereine mit dem Zeitpunkt einzuschließen.
+     */
+    public static final UUID NIL = new UUID(0L, 0L);
+
+    /**
+     * Position vor allen Vereinen für eine vollständige Synchronisation.
+     */
+    public static final SyncToken ANFANG = new SyncToken(LocalDateTime.of(1970, 1, 1, 0, 0), NIL);
+
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * SyncToken aus einem opaken Token, z.B. aus einem Query-Parameter, rekonstruieren.
+     *
+     * @param token Das Token, das mit encode() erzeugt wurde
+     * @return Der zugehörige SyncToken
+     * @throws IllegalArgumentException Falls das Token syntaktisch ungültig ist
+     */
+    public static SyncToken decode(final String token) {
+        final var decoded = new String(Base64.getUrlDecoder().decode(token), UTF_8);
+        if (decoded.length() <= UUID_LENGTH) {
+            throw new IllegalArgumentException("Ungueltiges Token: " + token);
+        }
+        try {
+            return new SyncToken(
+                LocalDateTime.parse(decoded.substring(UUID_LENGTH)),
+                UUID.fromString(decoded.substring(0, UUID_LENGTH))
+            );
+        } catch (final DateTimeParseException ex) {
+            throw new IllegalArgumentException("Ungueltiges Token: " + token, ex);
+        }
+    }
+
+    /**
+     * Den SyncToken als opakes Token für URIs kodieren.
+     *
+     * @return Das Token in Base64 für URLs
+     */
+    public String encode() {
+        final var raw = id.toString() + zeitpunkt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+
+import static org.hibernate.type.StandardBasicTypes.BOOLEAN;
+import static org.hibernate.type.StandardBasicTypes.DOUBLE;
+
+/**
+ * Registrierung der Funktionen von pg_trgm für JPQL und die Criteria API. Die Registrierung erfolgt durch
+ * META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public class TrigramFunctionContributor implements FunctionContributor {
+    /**
+     * Name der Funktion für den Operator %, der den Trigramm-Index verwenden kann.
+     */
+    public static final String TRGM_SIMILAR = "trgm_similar";
+
+    /**
+     * Name der Funktion für den Grad der Ähnlichkeit zwischen 0 und 1.
+     */
+    public static final String SIMILARITY = "similarity";
+
+    @Override
+    public void contributeFunctions(final FunctionContributions functionContributions) {
+        final var typeRegistry = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+        final var functionRegistry = functionContributions.getFunctionRegistry();
+        // Ein Funktionsaufruf similarity(a, b) > x kann keinen Index verwenden, der Operator a % b dagegen schon
+        functionRegistry.registerPattern(TRGM_SIMILAR, "(?1 % ?2)", typeRegistry.resolve(BOOLEAN));
+        functionRegistry.registerNamed(SIMILARITY, typeRegistry.resolve(DOUBLE));
+    }
+}
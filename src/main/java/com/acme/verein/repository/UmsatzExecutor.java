@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragment-Interface für VereinRepository, um die Umsätze zu Suchkriterien für Statistiken als primitive Arrays zu
+ * lesen, statt pro Verein ein Entity mit BigDecimal und Currency zu erzeugen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public interface UmsatzExecutor {
+    /**
+     * Die Umsätze der Vereine zu Suchkriterien pro Währung lesen. Vereine ohne Umsatz werden ignoriert.
+     *
+     * @param suchkriterien Syntaktisch korrekte Suchkriterien aus KeysetExecutor.SUCHKRITERIEN mit jeweils genau
+     *      einem Wert. Ohne Suchkriterien werden alle Vereine berücksichtigt.
+     * @return Die Umsätze pro Währung, sortiert nach dem Währungscode, oder eine leere Liste
+     */
+    List<UmsatzVerteilung> findUmsatzVerteilung(Map<String, ? extends List<String>> suchkriterien);
+}
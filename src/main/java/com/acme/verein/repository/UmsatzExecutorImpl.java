@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import static com.acme.verein.repository.VereinRepository.STREAM_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Implementierung des Fragment-Interface UmsatzExecutor mit einem JPQL-String aus SuchQueryCache. Der Name muss mit
+ * "Impl" enden, damit Spring Data die Klasse zum Interface findet.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RequiredArgsConstructor
+@Slf4j
+class UmsatzExecutorImpl implements UmsatzExecutor {
+    private static final int PUFFER_GROESSE = 1_024;
+
+    private final SuchQueryCache queryCache;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<UmsatzVerteilung> findUmsatzVerteilung(final Map<String, ? extends List<String>> suchkriterien) {
+        log.debug("findUmsatzVerteilung: suchkriterien={}", suchkriterien);
+        final var query = em.createQuery(queryCache.umsatzJpql(suchkriterien.keySet()), Tuple.class)
+            .setHint(HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+            .setHint(HINT_READ_ONLY, true);
+        suchkriterien.forEach((name, werte) ->
+            query.setParameter(name, KeysetExecutorImpl.parameterWert(name, werte.get(0)))
+        );
+
+        // die Betraege kommen nach (waehrung, betrag) sortiert, d.h. pro Waehrung zusammenhaengend und aufsteigend
+        final List<UmsatzVerteilung> verteilungen = new ArrayList<>();
+        var puffer = new long[PUFFER_GROESSE];
+        var anzahl = 0;
+        Currency waehrung = null;
+        try (var tuples = query.getResultStream()) {
+            final var iterator = tuples.iterator();
+            while (iterator.hasNext()) {
+                final var tuple = iterator.next();
+                final var naechste = tuple.get(0, Currency.class);
+                if (!naechste.equals(waehrung)) {
+                    if (waehrung != null) {
+                        verteilungen.add(new UmsatzVerteilung(waehrung, Arrays.copyOf(puffer, anzahl)));
+                    }
+                    waehrung = naechste;
+                    anzahl = 0;
+                }
+                if (anzahl == puffer.length) {
+                    puffer = Arrays.copyOf(puffer, anzahl * 2);
+                }
+                puffer[anzahl++] = tuple.get(1, Long.class);
+            }
+        }
+        if (waehrung != null) {
+            verteilungen.add(new UmsatzVerteilung(waehrung, Arrays.copyOf(puffer, anzahl)));
+        }
+        log.debug("findUmsatzVerteilung: waehrungen={}", verteilungen.size());
+        return verteilungen;
+    }
+}
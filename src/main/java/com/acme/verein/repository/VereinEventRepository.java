@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.VereinEvent;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository für die Outbox-Tabelle mit den Events zu Änderungen an Vereinen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Repository
+public interface VereinEventRepository extends JpaRepository<VereinEvent, Long> {
+    /**
+     * Events für Vereine mit deren aktueller Version in einer einzigen SQL-Anweisung speichern. Der Persistence
+     * Context wird vorher geschrieben, damit neue und geänderte Vereine bereits in der DB sind.
+     *
+     * @param typ Die Art der Änderung als String von EventTyp
+     * @param vereinIds Die IDs der geänderten Vereine
+     * @return Die Anzahl der gespeicherten Events
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        INSERT INTO verein_event (verein_id, typ, version)
+        SELECT      id, :typ, version
+        FROM        verein
+        WHERE       id IN (:vereinIds)
+        """)
+    int insertEvents(String typ, Collection<UUID> vereinIds);
+
+    /**
+     * Die Advisory Lock für das Veröffentlichen bis zum Ende der Transaktion anfordern, damit bei mehreren Instanzen
+     * nur ein Relay gleichzeitig Positionen vergibt.
+     *
+     * @param key Schlüssel der Advisory Lock
+     * @return true, falls die Lock erhalten wurde
+     */
+    @Query(nativeQuery = true, value = "SELECT pg_try_advisory_xact_lock(:key)")
+    boolean sperren(long key);
+
+    /**
+     * Die ältesten noch nicht veröffentlichten Events in der Reihenfolge ihrer ID veröffentlichen, d.h. mit
+     * fortlaufenden Positionen nach der höchsten bisher vergebenen Position versehen. Die höchste Position wird in
+     * derselben Anweisung als Marke in verein_event_position fortgeschrieben, damit die Positionen auch nach dem
+     * Bereinigen aller veröffentlichten Events nie erneut vergeben werden.
+     *
+     * @param limit Maximale Anzahl an Events
+     * @return Die Anzahl der veröffentlichten Events
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        WITH n AS MATERIALIZED (
+                 SELECT   id,
+                          (SELECT hoechste FROM verein_event_position) + row_number() OVER (ORDER BY id) AS position
+                 FROM     verein_event
+                 WHERE    position IS NULL
+                 ORDER BY id
+                 LIMIT    :limit
+             ),
+             marke AS (
+                 UPDATE verein_event_position
+                 SET    hoechste = hoechste + (SELECT count(*) FROM n)
+             )
+        UPDATE verein_event e
+        SET    position = n.position
+        FROM   n
+        WHERE  e.id = n.id
+        """)
+    int veroeffentlichen(int limit);
+
+    /**
+     * Die höchste bisher vergebene Position ermitteln. Sie sinkt nie, auch nicht durch das Bereinigen.
+     *
+     * @return Die höchste Position oder 0
+     */
+    @Query(nativeQuery = true, value = "SELECT hoechste FROM verein_event_position")
+    long findMaxPosition();
+
+    /**
+     * Die niedrigste Position ermitteln, die noch nachgeliefert werden kann. Ältere Events wurden wegen der
+     * Aufbewahrung bereits gelöscht. Sind alle veröffentlichten Events gelöscht, dann ist es die Position nach der
+     * höchsten bisher vergebenen Position.
+     *
+     * @return Die niedrigste lieferbare Position
+     */
+    @Query(nativeQuery = true, value = """
+        SELECT coalesce(
+                   (SELECT min(position) FROM verein_event),
+                   (SELECT hoechste FROM verein_event_position) + 1
+               )
+        """)
+    long findMinPosition();
+
+    /**
+     * Den Stand der Outbox als kompakten Validator für bedingte GET-Requests ermitteln. Jede Änderung an einem Verein
+     * schreibt in derselben Transaktion ein Event, das nach dem Commit entweder noch unveröffentlicht ist oder die
+     * höchste Position erhöht. Weil die IDs nicht in der Reihenfolge der Commits sichtbar werden, genügt die höchste ID
+     * allein nicht. Alle drei Werte werden über Indexe gelesen, d.h. ohne die Tabelle verein.
+     *
+     * @return Hashwert aus höchster ID, höchster Position und den IDs der unveröffentlichten Events
+     */
+    @Query(nativeQuery = true, value = """
+        SELECT md5(concat_ws(
+                   ':',
+                   (SELECT max(id) FROM verein_event),
+                   (SELECT max(position) FROM verein_event),
+                   (SELECT string_agg(cast(id AS text), ',' ORDER BY id) FROM verein_event WHERE position IS NULL)
+               ))
+        """)
+    String findStand();
+
+    /**
+     * Veröffentlichte Events nach einer Position in aufsteigender Reihenfolge lesen.
+     *
+     * @param nach Die Position, nach der gelesen wird
+     * @param bis Die höchste Position, die gelesen wird
+     * @param limit Maximale Anzahl an Events
+     * @return Die Events aufsteigend sortiert nach der Position
+     */
+    @Query(nativeQuery = true, value = """
+        SELECT   *
+        FROM     verein_event
+        WHERE    position > :nach AND position <= :bis
+        ORDER BY position
+        LIMIT    :limit
+        """)
+    List<VereinEvent> findVeroeffentlicht(long nach, long bis, int limit);
+
+    /**
+     * Die IDs der Vereine, die in einem Zeitraum gelöscht wurden, als Tombstones für die Delta-Synchronisation.
+     *
+     * @param nach Beginn des Zeitraums ausschließlich
+     * @param bis Ende des Zeitraums einschließlich
+     * @return Die IDs der gelöschten Vereine
+     */
+    @Query("""
+        SELECT   e.vereinId
+        FROM     VereinEvent e
+        WHERE    e.typ = com.acme.verein.entity.EventTyp.DELETE AND e.erzeugt > :nach AND e.erzeugt <= :bis
+        ORDER BY e.erzeugt
+        """)
+    List<UUID> findGeloescht(LocalDateTime nach, LocalDateTime bis);
+
+    /**
+     * Veröffentlichte Events löschen, die älter als ein Zeitpunkt sind.
+     *
+     * @param grenze Der Zeitpunkt
+     * @return Die Anzahl der gelöschten Events
+     */
+    @Modifying
+    @Transactional
+    // native, weil VereinEvent mit @Immutable nicht per JPQL geaendert werden soll
+    @Query(nativeQuery = true, value = "DELETE FROM verein_event WHERE position IS NOT NULL AND erzeugt < :grenze")
+    int deleteVeroeffentlichtVor(LocalDateTime grenze);
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Suchkriterien als Prädikate für Vereine im Hauptspeicher mit derselben Semantik wie SpecBuilder und SuchQueryCache,
+ * z.B. für InMemoryVereinRepository.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+final class VereinFilter {
+    /**
+     * Mindestwert der Ähnlichkeit wie pg_trgm.similarity_threshold bei PostgreSQL.
+     */
+    static final double AEHNLICHKEIT_MIN = 0.3;
+
+    private static final Pattern WORTGRENZE = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private VereinFilter() {
+    }
+
+    /**
+     * Prädikat für syntaktisch korrekte Suchkriterien, die alle erfüllt sein müssen.
+     *
+     * @param suchkriterien Suchkriterien aus KeysetExecutor.SUCHKRITERIEN mit jeweils genau einem Wert
+     * @return Prädikat für die Suchkriterien
+     * @throws IllegalArgumentException Falls ein Suchkriterium unbekannt ist
+     */
+    static Predicate<Verein> of(final Map<String, ? extends List<String>> suchkriterien) {
+        return suchkriterien.entrySet()
+            .stream()
+            .map(entry -> kriterium(entry.getKey(), entry.getValue().get(0)))
+            .reduce(verein -> true, Predicate::and);
+    }
+
+    /**
+     * Die Ähnlichkeit zweier Strings als Anteil der gemeinsamen Trigramme wie bei similarity() von pg_trgm.
+     *
+     * @param a Der erste String
+     * @param b Der zweite String
+     * @return Die Ähnlichkeit zwischen 0 und 1
+     */
+    static double aehnlichkeit(final String a, final String b) {
+        final var trigrammeA = trigramme(a);
+        final var trigrammeB = trigramme(b);
+        if (trigrammeA.isEmpty() || trigrammeB.isEmpty()) {
+            return 0;
+        }
+        final Set<String> gemeinsam = new HashSet<>(trigrammeA);
+        gemeinsam.retainAll(trigrammeB);
+        final var vereinigt = trigrammeA.size() + trigrammeB.size() - gemeinsam.size();
+        return (double) gemeinsam.size() / vereinigt;
+    }
+
+    @SuppressWarnings("CyclomaticComplexity")
+    private static Predicate<Verein> kriterium(final String name, final String wert) {
+        return switch (name) {
+            case "name" -> verein -> enthaelt(verein.getName(), wert);
+            case "nameAehnlich" -> verein -> aehnlichkeit(verein.getName(), wert) >= AEHNLICHKEIT_MIN;
+            case "email" -> verein -> enthaelt(verein.getEmail(), wert);
+            case "plz" -> verein -> verein.getAdresse() != null && verein.getAdresse().getPlz().startsWith(wert);
+            case "ort" -> {
+                final var prefix = wert.toLowerCase(ROOT);
+                yield verein -> verein.getAdresse() != null
+                    && verein.getAdresse().getOrt().toLowerCase(ROOT).startsWith(prefix);
+            }
+            case "gruendungsdatumVon" -> {
+                final var von = LocalDate.parse(wert);
+                yield verein -> verein.getGruendungsdatum() != null && !verein.getGruendungsdatum().isBefore(von);
+            }
+            case "gruendungsdatumBis" -> {
+                final var bis = LocalDate.parse(wert);
+                yield verein -> verein.getGruendungsdatum() != null && !verein.getGruendungsdatum().isAfter(bis);
+            }
+            case "waehrung" -> {
+                final var waehrung = Currency.getInstance(wert);
+                yield verein -> verein.getUmsatz() != null && waehrung.equals(verein.getUmsatz().getWaehrung());
+            }
+            case "umsatzMin" -> {
+                final var min = new BigDecimal(wert);
+                yield verein -> verein.getUmsatz() != null && verein.getUmsatz().getBetrag().compareTo(min) >= 0;
+            }
+            case "umsatzMax" -> {
+                final var max = new BigDecimal(wert);
+                yield verein -> verein.getUmsatz() != null && verein.getUmsatz().getBetrag().compareTo(max) <= 0;
+            }
+            default -> throw new IllegalArgumentException("Unbekanntes Suchkriterium: " + name);
+        };
+    }
+
+    // wie LIKE mit %...% nach lower() auf beiden Seiten
+    private static boolean enthaelt(final String wert, final String teil) {
+        return wert != null && wert.toLowerCase(ROOT).contains(teil.toLowerCase(ROOT));
+    }
+
+    // pg_trgm: pro Wort 2 Leerzeichen davor und 1 Leerzeichen danach
+    private static Set<String> trigramme(final String str) {
+        final Set<String> trigramme = new HashSet<>();
+        for (final var wort : WORTGRENZE.split(str.toLowerCase(ROOT))) {
+            if (wort.isEmpty()) {
+                continue;
+            }
+            final var gepolstert = "  " + wort + ' ';
+            for (var i = 0; i + 3 <= gepolstert.length(); i++) {
+                trigramme.add(gepolstert.substring(i, i + 3));
+            }
+        }
+        return trigramme;
+    }
+}
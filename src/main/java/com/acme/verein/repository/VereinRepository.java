@@ -17,30 +17,36 @@
 package com.acme.verein.repository;
 
 import com.acme.verein.entity.Verein;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import org.springframework.data.jpa.repository.EntityGraph;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 /**
  * Repository für den DB-Zugriff bei Vereine.
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
 @Repository
-public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecificationExecutor<Verein> {
-    @EntityGraph(attributePaths = {"adresse", "interessen"})
-    @Override
-    List<Verein> findAll();
-
-    @EntityGraph(attributePaths = {"adresse", "interessen"})
-    @Override
-    Optional<Verein> findById(UUID id);
+public interface VereinRepository
+    extends JpaRepository<Verein, UUID>, JpaSpecificationExecutor<Verein>, KeysetExecutor, UmsatzExecutor {
+    /**
+     * Anzahl der Datensätze, die der JDBC-Treiber beim Streaming jeweils vom DB-Server holt.
+     */
+    String STREAM_FETCH_SIZE = "500";
 
     /**
      * Verein zu gegebener Emailadresse aus der DB ermitteln.
@@ -53,9 +59,71 @@ public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecif
         FROM   Verein v
         WHERE  lower(v.email) LIKE concat(lower(:email), '%')
         """)
-    @EntityGraph(attributePaths = {"adresse", "interessen"})
     Optional<Verein> findByEmail(String email);
 
+    /**
+     * Name des Unique Constraint für die Emailadresse, an dem eine bereits vorhandene Emailadresse beim Ändern erkannt
+     * wird.
+     */
+    String EMAIL_CONSTRAINT = "verein_email_key";
+
+    /**
+     * Einen Verein mit einer einzigen SQL-Anweisung ändern, falls die Version noch aktuell ist. Durch den Self-Join
+     * mit "alt" liefert RETURNING auch die Werte vor der Änderung. Eine bereits vorhandene Emailadresse führt zu einer
+     * Verletzung von EMAIL_CONSTRAINT.
+     *
+     * @param id Die ID des zu ändernden Vereins
+     * @param version Die erwartete Version
+     * @param name Der neue Name
+     * @param email Die neue Emailadresse
+     * @param gruendungsdatum Das neue Gründungsdatum oder null
+     * @param homepage Die neue Homepage oder null
+     * @return Die neue Version mit den bisherigen Werten oder ein leeres Optional, falls es keinen Verein mit der ID
+     *      und der Version gibt
+     */
+    // ohne @Modifying, weil executeUpdate() keine Resultate von RETURNING zulaesst
+    @Query(nativeQuery = true, value = """
+        UPDATE    verein v
+        SET       name = :name, email = :email, gruendungsdatum = :gruendungsdatum, homepage = :homepage,
+                  version = v.version + 1, aktualisiert = localtimestamp
+        FROM      verein alt
+        WHERE     v.id = :id AND v.version = :version AND alt.id = v.id
+        RETURNING v.version AS version, alt.name AS nameAlt, alt.gruendungsdatum AS gruendungsdatumAlt
+        """)
+    @SuppressWarnings("ParameterNumber")
+    Optional<Aenderung> updateIfVersion(
+        UUID id,
+        int version,
+        String name,
+        String email,
+        LocalDate gruendungsdatum,
+        String homepage
+    );
+
+    /**
+     * Vereine mengenorientiert in einer einzigen SQL-Anweisung löschen, statt jeden Verein zu laden und Zeile für
+     * Zeile zu löschen. Adresse und Umsatz sind Spalten von verein und werden dadurch ebenfalls gelöscht. Pro
+     * gelöschtem Verein wird in derselben Anweisung ein Event vom Typ DELETE in die Outbox geschrieben.
+     *
+     * @param ids Die IDs der zu löschenden Vereine
+     * @return Die gelöschten Vereine
+     */
+    // ohne @Modifying, weil executeUpdate() keine Resultate von RETURNING zulaesst
+    @Query(nativeQuery = true, value = """
+        WITH v AS (
+            DELETE FROM verein
+            WHERE       id IN (:ids)
+            RETURNING   id, name, gruendungsdatum, plz, ort
+        ), e AS (
+            INSERT INTO verein_event (verein_id, typ)
+            SELECT      id, 'DELETE'
+            FROM        v
+        )
+        SELECT id, name, gruendungsdatum, plz, ort
+        FROM   v
+        """)
+    List<GeloeschterVerein> deleteMitEvent(Collection<UUID> ids);
+
     /**
      * Abfrage, ob es einen Verein mit gegebener Emailadresse gibt.
      *
@@ -66,9 +134,45 @@ public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecif
     boolean existsByEmail(String email);
 
     /**
-     * Verein anhand des Namens suchen.
+     * Abfrage, welche der gegebenen Emailadressen bereits vorhanden sind, z.B. beim Neuanlegen mehrerer Vereine.
+     *
+     * @param emails Emailadressen für die Suche
+     * @return Die bereits vorhandenen Emailadressen
+     */
+    @Query("""
+        SELECT v.email
+        FROM   Verein v
+        WHERE  v.email IN :emails
+        """)
+    List<String> findVorhandeneEmails(Collection<String> emails);
+
+    /**
+     * Die kleingeschriebenen Emailadressen aller Vereine als Stream lesen, z.B. für einen Bloom-Filter. Der Stream
+     * muss innerhalb einer Transaktion verarbeitet und anschließend geschlossen werden.
+     *
+     * @return Stream mit allen Emailadressen
+     */
+    @Query("""
+        SELECT lower(v.email)
+        FROM   Verein v
+        """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<String> streamEmails();
+
+    /**
+     * Alle Vereine als Seite ohne COUNT-Query lesen, z.B. mit einer Obergrenze für die Anzahl.
+     *
+     * @param pageable Die Seite mit der Anzahl und ggf. der Sortierung
+     * @return Die Vereine der Seite oder eine leere Liste
+     */
+    List<Verein> findAllBy(Pageable pageable);
+
+    /**
+     * Verein anhand des Namens suchen. Durch den Trigramm-Index verein_name_trgm_idx ist trotz des führenden Wildcard
+     * kein Full Table Scan erforderlich.
      *
      * @param name Der (Teil-) Name der gesuchten Vereine
+     * @param pageable Die Seite mit der maximalen Anzahl
      * @return Die gefundenen Vereine oder eine leere Collection
      */
     @Query("""
@@ -77,14 +181,31 @@ public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecif
         WHERE    lower(v.name) LIKE concat('%', lower(:name), '%')
         ORDER BY v.id
         """)
-    @EntityGraph(attributePaths = {"adresse", "interessen"})
-    Collection<Verein> findByName(CharSequence name);
+    Collection<Verein> findByName(CharSequence name, Pageable pageable);
+
+    /**
+     * Vereine mit einem ähnlichen Namen suchen, z.B. bei Tippfehlern wie "Alpah" statt "Alpha". Die Vereine sind nach
+     * absteigender Ähnlichkeit sortiert. Die Bedingung verwendet den Trigramm-Index verein_name_trgm_idx.
+     *
+     * @param name Der ungefähre Name der gesuchten Vereine
+     * @param pageable Maximale Anzahl der gefundenen Vereine, ohne zusätzliche COUNT-Query
+     * @return Die gefundenen Vereine als Projektion oder eine leere Liste
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinUebersicht(v.id, v.name, v.email, v.gruendungsdatum, v.homepage,
+                                                                 v.adresse.plz, v.adresse.ort)
+        FROM     Verein v
+        WHERE    trgm_similar(lower(v.name), lower(:name)) = true
+        ORDER BY similarity(lower(v.name), lower(:name)) DESC, v.id
+        """)
+    List<VereinUebersicht> findByNameAehnlich(String name, Pageable pageable);
 
     /**
      * Abfrage, welche Namen es zu einem Präfix gibt.
      *
      * @param prefix Name-Präfix.
-     * @return Die passenden Namen oder eine leere Collection.
+     * @param pageable Maximale Anzahl der Namen
+     * @return Die passenden Namen oder eine leere Liste.
      */
     @Query("""
         SELECT DISTINCT v.name
@@ -92,5 +213,89 @@ public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecif
         WHERE    lower(v.name) LIKE concat(lower(:prefix), '%')
         ORDER BY v.name
         """)
-    Collection<String> findNamenByPrefix(String prefix);
+    List<String> findNamenByPrefix(String prefix, Pageable pageable);
+
+    /**
+     * Die verschiedenen Namen mit der jeweiligen Anzahl an Vereinen ermitteln, z.B. für einen In-Memory-Index.
+     *
+     * @return Die Namen mit ihrer Anzahl
+     */
+    @Query("""
+        SELECT   v.name AS name, count(v) AS anzahl
+        FROM     Verein v
+        GROUP BY v.name
+        """)
+    List<NameAnzahl> countByName();
+
+    /**
+     * Die Anzahl der Vereine pro Ort ermitteln, z.B. für den Abgleich der Facetten.
+     *
+     * @return Die Orte mit ihrer Anzahl
+     */
+    @Query("""
+        SELECT   v.adresse.ort AS wert, count(v) AS anzahl
+        FROM     Verein v
+        GROUP BY v.adresse.ort
+        """)
+    List<FacetteAnzahl> countByOrt();
+
+    /**
+     * Die Anzahl der Vereine pro PLZ-Region, d.h. pro den ersten beiden Ziffern der PLZ, ermitteln.
+     *
+     * @return Die PLZ-Regionen mit ihrer Anzahl
+     */
+    @Query("""
+        SELECT   substring(v.adresse.plz, 1, 2) AS wert, count(v) AS anzahl
+        FROM     Verein v
+        GROUP BY substring(v.adresse.plz, 1, 2)
+        """)
+    List<FacetteAnzahl> countByPlzRegion();
+
+    /**
+     * Die Anzahl der Vereine pro Gründungsjahr ermitteln. Vereine ohne Gründungsdatum werden nicht gezählt.
+     *
+     * @return Die Gründungsjahre mit ihrer Anzahl
+     */
+    @Query("""
+        SELECT   cast(year(v.gruendungsdatum) AS String) AS wert, count(v) AS anzahl
+        FROM     Verein v
+        WHERE    v.gruendungsdatum IS NOT NULL
+        GROUP BY year(v.gruendungsdatum)
+        """)
+    List<FacetteAnzahl> countByGruendungsjahr();
+
+    /**
+     * Die Vereine lesen, die nach einer Position geändert wurden, aufsteigend sortiert nach (aktualisiert, id), so
+     * dass der Index verein_aktualisiert_idx verwendet wird.
+     *
+     * @param zeitpunkt Der Zeitpunkt der Position
+     * @param id Die ID an der Position
+     * @param pageable Die maximale Anzahl der Vereine als erste Seite
+     * @return Die geänderten Vereine mit Adresse
+     */
+    // die redundante Bedingung mit >= ermoeglicht einen Range-Scan auf dem Index
+    @Query("""
+        SELECT   v
+        FROM     Verein v
+        WHERE    v.aktualisiert >= :zeitpunkt AND (v.aktualisiert > :zeitpunkt OR v.id > :id)
+        ORDER BY v.aktualisiert, v.id
+        """)
+    List<Verein> findAktualisiertNach(LocalDateTime zeitpunkt, UUID id, Pageable pageable);
+
+    /**
+     * Alle Vereine als Stream lesen, z.B. für einen Export. Durch die Fetch Size liest der
+     * JDBC-Treiber die Datensätze mit einem Cursor portionsweise, statt das gesamte Resultat in den Heap zu laden.
+     * Der Stream muss innerhalb einer Transaktion verarbeitet und anschließend geschlossen werden.
+     *
+     * @return Stream mit allen Vereinen
+     */
+    @Query("""
+        SELECT v
+        FROM   Verein v
+        """)
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<Verein> streamAll();
 }
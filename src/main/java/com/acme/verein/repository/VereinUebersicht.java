@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein_;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Projektion eines Vereins mit Adresse für Listen, die mit einer Constructor Expression gelesen wird. Die Objekte
+ * werden nicht im Persistence Context verwaltet, d.h. es gibt weder Snapshots für Dirty Checking noch Proxies. Nicht
+ * angeforderte Felder sind null.
+ *
+ * @param id ID des Vereins
+ * @param name Name des Vereins
+ * @param email Emailadresse des Vereins
+ * @param gruendungsdatum Gründungsdatum des Vereins
+ * @param homepage Homepage des Vereins
+ * @param plz Postleitzahl der Adresse
+ * @param ort Ort der Adresse
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record VereinUebersicht(
+    UUID id,
+    String name,
+    String email,
+    LocalDate gruendungsdatum,
+    URL homepage,
+    String plz,
+    String ort
+) {
+    /**
+     * Die Felder, die angefordert werden können. ID und Name werden wegen der Keyset-Pagination immer gelesen.
+     */
+    public static final Set<String> FELDER =
+        Set.of(Verein_.NAME, Verein_.EMAIL, Verein_.GRUENDUNGSDATUM, Verein_.HOMEPAGE, Verein_.ADRESSE);
+}
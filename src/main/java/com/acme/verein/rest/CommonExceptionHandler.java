@@ -17,12 +17,21 @@
 package com.acme.verein.rest;
 
 import com.acme.verein.service.NotFoundException;
+import com.acme.verein.service.SuchkriteriumInvalidException;
+import com.acme.verein.service.SyncTokenExpiredException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.net.URI;
+
+import static com.acme.verein.rest.VereinWriteController.PROBLEM_PATH;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.GONE;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 /**
@@ -44,4 +53,25 @@ class CommonExceptionHandler {
     void onAccessForbidden(final AccessForbiddenException ex) {
         log.debug("onAccessForbidden: {}", ex.getMessage());
     }
+
+    @ExceptionHandler
+    ProblemDetail onSuchkriteriumInvalid(
+        final SuchkriteriumInvalidException ex,
+        final HttpServletRequest request
+    ) {
+        log.debug("onSuchkriteriumInvalid: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(BAD_REQUEST, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.BAD_REQUEST.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
+    @ExceptionHandler
+    ProblemDetail onSyncTokenExpired(final SyncTokenExpiredException ex, final HttpServletRequest request) {
+        log.debug("onSyncTokenExpired: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(GONE, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.GONE.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator für die Datensätze einer CSV-Eingabe gemäß RFC 4180, d.h. ein Wert in Anführungszeichen darf Kommas,
+ * Anführungszeichen und Zeilenumbrüche enthalten. Die Eingabe wird zeichenweise gelesen und nicht vollständig in den
+ * Heap geladen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+final class CsvReader implements Iterator<CsvReader.Datensatz> {
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private long zeile = 1;
+    private Datensatz next;
+    private boolean eof;
+
+    /**
+     * Ein Datensatz mit der Zeilennummer, in der er beginnt.
+     *
+     * @param zeile Zeilennummer in der Eingabe
+     * @param werte Die Werte des Datensatzes
+     */
+    record Datensatz(long zeile, List<String> werte) {
+    }
+
+    CsvReader(final Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !eof) {
+            try {
+                next = read();
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Datensatz next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final var datensatz = next;
+        next = null;
+        return datensatz;
+    }
+
+    @SuppressWarnings({"CyclomaticComplexity", "NestedIfDepth"})
+    private Datensatz read() throws IOException {
+        // Leerzeilen ueberspringen
+        int c;
+        do {
+            c = reader.read();
+            if (c == '\n') {
+                zeile++;
+            }
+        } while (c == '\n' || c == '\r');
+        if (c == EOF) {
+            eof = true;
+            return null;
+        }
+
+        final var start = zeile;
+        final List<String> werte = new ArrayList<>();
+        final var wert = new StringBuilder();
+        var inQuotes = false;
+        while (c != EOF) {
+            if (inQuotes) {
+                if (c == '"') {
+                    final var peek = reader.read();
+                    if (peek == '"') {
+                        wert.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = peek;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        zeile++;
+                    }
+                    wert.append((char) c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                werte.add(wert.toString());
+                wert.setLength(0);
+            } else if (c == '\n') {
+                zeile++;
+                break;
+            } else if (c != '\r') {
+                wert.append((char) c);
+            }
+            c = reader.read();
+        }
+        if (c == EOF) {
+            eof = true;
+        }
+        werte.add(wert.toString());
+        return new Datensatz(start, werte);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Model-Klasse für Spring HATEOAS bei der Delta-Synchronisation. Der Link "next" enthält das Token für die nächste
+ * Synchronisation.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@JsonPropertyOrder({"vereine", "geloescht", "next", "hasMore"})
+@EqualsAndHashCode(callSuper = true)
+@Getter
+@ToString(callSuper = true)
+class DeltaModel extends RepresentationModel<DeltaModel> {
+    /**
+     * Die neu angelegten oder geänderten Vereine jeweils mit dem Link "self".
+     */
+    private final List<VereinModel> vereine;
+
+    /**
+     * Die IDs der gelöschten Vereine.
+     */
+    private final List<UUID> geloescht;
+
+    /**
+     * Das opake Token für die nächste Synchronisation.
+     */
+    private final String next;
+
+    /**
+     * true, falls sofort weitere Änderungen mit dem Token gelesen werden können.
+     */
+    private final boolean hasMore;
+
+    DeltaModel(
+        final List<VereinModel> vereine,
+        final List<UUID> geloescht,
+        final String next,
+        final boolean hasMore
+    ) {
+        this.vereine = vereine;
+        this.geloescht = geloescht;
+        this.next = next;
+        this.hasMore = hasMore;
+    }
+}
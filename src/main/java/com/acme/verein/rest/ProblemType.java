@@ -40,7 +40,12 @@ public enum ProblemType {
     /**
      * Fehler bei z.B. einer Patch-Operation.
      */
-    BAD_REQUEST("badRequest");
+    BAD_REQUEST("badRequest"),
+
+    /**
+     * Fehler, wenn z.B. ein Token für die Delta-Synchronisation abgelaufen ist.
+     */
+    GONE("gone");
 
     private final String value;
 
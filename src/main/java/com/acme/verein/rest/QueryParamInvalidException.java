@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.ErrorResponseException;
+
+import java.net.URI;
+
+import static com.acme.verein.rest.VereinWriteController.PROBLEM_PATH;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Exception, falls ein Query-Parameter wie z.B. ein Cursor für die Pagination syntaktisch ungültig ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+class QueryParamInvalidException extends ErrorResponseException {
+    QueryParamInvalidException(final String message, final URI uri) {
+        this(message, uri, null);
+    }
+
+    QueryParamInvalidException(final String message, final URI uri, final Throwable cause) {
+        super(BAD_REQUEST, asProblemDetail(message, uri), cause);
+    }
+
+    private static ProblemDetail asProblemDetail(final String detail, final URI uri) {
+        final var problemDetail = ProblemDetail.forStatusAndDetail(BAD_REQUEST, detail);
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.BAD_REQUEST.getValue()));
+        problemDetail.setInstance(uri);
+        return problemDetail;
+    }
+}
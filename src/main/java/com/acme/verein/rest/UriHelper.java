@@ -19,7 +19,9 @@ package com.acme.verein.rest;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 
@@ -60,6 +62,24 @@ class UriHelper {
         return URI.create(baseUri);
     }
 
+    /**
+     * URI aus der Basis-URI und Query-Parametern ermitteln, z.B. für die Links "next" und "prev" bei der Pagination.
+     *
+     * @param request Servlet-Request
+     * @param queryParams Die Query-Parameter für die URI
+     * @return Die URI mit den kodierten Query-Parametern
+     */
+    URI getUri(final HttpServletRequest request, final MultiValueMap<String, String> queryParams) {
+        final var uri = UriComponentsBuilder
+            .fromUri(getBaseUri(request))
+            .queryParams(queryParams)
+            .encode()
+            .build()
+            .toUri();
+        log.trace("getUri: uri={}", uri);
+        return uri;
+    }
+
     private URI getBaseUriForwarded(final HttpServletRequest request, final String forwardedHost) {
         // x-forwarded-host = Hostname des API-Gateways
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.VereinEvent;
+import com.acme.verein.service.VereinEventRelay;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
+/**
+ * Eine @RestController-Klasse für die Änderungen an Vereinen als Server-Sent Events, damit andere Services nicht
+ * regelmäßig alle Vereine abfragen müssen. Jedes Event hat seine Position in der Outbox als ID, so dass ein Client
+ * nach einem Verbindungsabbruch mit dem Header Last-Event-ID fortsetzen kann.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RestController
+@RequestMapping(REST_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class VereinEventController {
+    /**
+     * Pfad für die Server-Sent Events.
+     */
+    public static final String EVENTS_PATH = "/events";
+
+    /**
+     * Header, mit dem ein Client nach einem Verbindungsabbruch fortsetzt.
+     */
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    // Kommentar als Heartbeat, damit Proxies eine Verbindung ohne Aenderungen nicht schliessen
+    private static final Duration HEARTBEAT = Duration.ofSeconds(30);
+
+    private final VereinEventRelay relay;
+
+    /**
+     * Die Änderungen an Vereinen als Server-Sent Events abonnieren. Der Event-Name ist CREATE, UPDATE oder DELETE.
+     *
+     * @param lastEventId Die ID des zuletzt empfangenen Events, um die seither veröffentlichten Events nachgeliefert
+     *      zu bekommen
+     * @param request Das Request-Objekt, um ggf. die URL für ProblemDetail zu ermitteln
+     * @return Stream mit den Events, Statuscode 400, falls Last-Event-ID ungültig ist, oder Statuscode 410, falls
+     *      Events nach Last-Event-ID bereits gelöscht sind
+     */
+    @GetMapping(path = EVENTS_PATH, produces = TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Aenderungen an Vereinen als Server-Sent Events", tags = "Events")
+    @ApiResponse(responseCode = "200", description = "Stream mit den Events")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Last-Event-ID")
+    @ApiResponse(responseCode = "410", description = "Last-Event-ID abgelaufen")
+    Flux<ServerSentEvent<VereinEvent>> events(
+        @RequestHeader(LAST_EVENT_ID) final Optional<String> lastEventId,
+        final HttpServletRequest request
+    ) {
+        log.debug("events: lastEventId={}", lastEventId);
+        final Long nachPosition;
+        try {
+            nachPosition = lastEventId.map(Long::valueOf).orElse(null);
+        } catch (final NumberFormatException ex) {
+            throw new QueryParamInvalidException(
+                "Ungueltige " + LAST_EVENT_ID + ' ' + lastEventId.get(),
+                URI.create(request.getRequestURL().toString()),
+                ex
+            );
+        }
+
+        final var events = relay.abonnieren(nachPosition)
+            .map(event -> ServerSentEvent.builder(event)
+                .id(String.valueOf(event.getPosition()))
+                .event(event.getTyp().name())
+                .build()
+            )
+            // zweiter Subscriber nur fuer das Ende des Heartbeat
+            .share();
+        final var heartbeat = Flux.interval(HEARTBEAT)
+            .map(n -> ServerSentEvent.<VereinEvent>builder().comment("heartbeat").build());
+        // der Heartbeat endet mit dem Stream der Events, z.B. wenn der Puffer eines langsamen Clients voll ist
+        return events.mergeWith(heartbeat.takeUntilOther(events.ignoreElements()));
+    }
+}
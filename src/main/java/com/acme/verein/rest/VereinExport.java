@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Adresse;
+import com.acme.verein.entity.Umsatz;
+import com.acme.verein.entity.Verein;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Flacher Datensatz eines Vereins einschließlich Adresse und Umsatz für den Export und Import als NDJSON oder CSV.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ * @param id ID des Vereins
+ * @param version Versionsnummer des Vereins
+ * @param name Name des Vereins
+ * @param email Emailadresse des Vereins
+ * @param gruendungsdatum Gründungsdatum des Vereins
+ * @param homepage Homepage des Vereins
+ * @param plz Postleitzahl der Adresse
+ * @param ort Ort der Adresse
+ * @param betrag Betrag des Umsatzes
+ * @param waehrung Währung des Umsatzes
+ * @param erzeugt Zeitstempel beim Neuanlegen
+ * @param aktualisiert Zeitstempel beim letzten Aktualisieren
+ */
+@SuppressWarnings("RecordComponentNumber")
+record VereinExport(
+    UUID id,
+    int version,
+    String name,
+    String email,
+    LocalDate gruendungsdatum,
+    URL homepage,
+    String plz,
+    String ort,
+    BigDecimal betrag,
+    Currency waehrung,
+    LocalDateTime erzeugt,
+    LocalDateTime aktualisiert
+) {
+    /**
+     * Kopfzeile für den Export als CSV.
+     */
+    static final String CSV_HEADER =
+        "id,version,name,email,gruendungsdatum,homepage,plz,ort,betrag,waehrung,erzeugt,aktualisiert";
+
+    /**
+     * Konvertierung eines Vereins aus dem Anwendungskern in einen Datensatz für den Export.
+     *
+     * @param verein Der Verein mit geladener Adresse und geladenem Umsatz
+     * @return Der flache Datensatz für den Export
+     */
+    static VereinExport of(final Verein verein) {
+        final var adresse = verein.getAdresse();
+        final var umsatz = verein.getUmsatz();
+        return new VereinExport(
+            verein.getId(),
+            verein.getVersion(),
+            verein.getName(),
+            verein.getEmail(),
+            verein.getGruendungsdatum(),
+            verein.getHomepage(),
+            adresse == null ? null : adresse.getPlz(),
+            adresse == null ? null : adresse.getOrt(),
+            umsatz == null ? null : umsatz.getBetrag(),
+            umsatz == null ? null : umsatz.getWaehrung(),
+            verein.getErzeugt(),
+            verein.getAktualisiert()
+        );
+    }
+
+    /**
+     * Konvertierung eines CSV-Datensatzes für den Import. Die Spalten werden anhand der Kopfzeile zugeordnet, so dass
+     * ihre Reihenfolge beliebig ist und fehlende Spalten den Wert null erhalten.
+     *
+     * @param header Die Spaltennamen aus der Kopfzeile
+     * @param werte Die Werte des Datensatzes
+     * @return Der flache Datensatz
+     * @throws IllegalArgumentException Falls ein Wert nicht konvertiert werden kann
+     */
+    @SuppressWarnings("FeatureEnvy")
+    static VereinExport fromCsv(final List<String> header, final List<String> werte) {
+        final var csv = new CsvWerte(header, werte);
+        final var version = csv.get("version", Integer::valueOf);
+        return new VereinExport(
+            csv.get("id", UUID::fromString),
+            version == null ? 0 : version,
+            csv.get("name", wert -> wert),
+            csv.get("email", wert -> wert),
+            csv.get("gruendungsdatum", LocalDate::parse),
+            csv.get("homepage", URL::new),
+            csv.get("plz", wert -> wert),
+            csv.get("ort", wert -> wert),
+            csv.get("betrag", BigDecimal::new),
+            csv.get("waehrung", Currency::getInstance),
+            csv.get("erzeugt", LocalDateTime::parse),
+            csv.get("aktualisiert", LocalDateTime::parse)
+        );
+    }
+
+    /**
+     * Konvertierung in einen Verein für den Anwendungskern, z.B. beim Import.
+     *
+     * @return Der Verein mit Adresse und ggf. Umsatz
+     */
+    Verein toVerein() {
+        final var adresse = plz == null && ort == null
+            ? null
+            : Adresse.builder().plz(plz).ort(ort).build();
+        final var umsatz = betrag == null && waehrung == null
+            ? null
+            : Umsatz.builder().betrag(betrag).waehrung(waehrung).build();
+        return Verein
+            .builder()
+            .id(id)
+            .version(version)
+            .name(name)
+            .email(email)
+            .gruendungsdatum(gruendungsdatum)
+            .homepage(homepage)
+            .umsatz(umsatz)
+            .adresse(adresse)
+            .erzeugt(erzeugt)
+            .aktualisiert(aktualisiert)
+            .build();
+    }
+
+    /**
+     * Konvertierung in eine CSV-Zeile gemäß RFC 4180 ohne Zeilenumbruch.
+     *
+     * @return Die CSV-Zeile
+     */
+    String toCsv() {
+        return Stream.of(id, version, name, email, gruendungsdatum, homepage, plz, ort, betrag, waehrung, erzeugt,
+                aktualisiert)
+            .map(value -> value == null ? "" : escapeCsv(Objects.toString(value)))
+            .collect(Collectors.joining(","));
+    }
+
+    private static String escapeCsv(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private record CsvWerte(List<String> header, List<String> werte) {
+        <T> T get(final String spalte, final Parser<T> parser) {
+            final var index = header.indexOf(spalte);
+            if (index < 0 || index >= werte.size() || werte.get(index).isEmpty()) {
+                return null;
+            }
+            final var wert = werte.get(index);
+            try {
+                return parser.parse(wert);
+            } catch (final Exception ex) {
+                throw new IllegalArgumentException("Ungueltiger Wert fuer " + spalte + ": " + wert, ex);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parser<T> {
+        @SuppressWarnings("ProhibitedExceptionDeclared")
+        T parse(String wert) throws Exception;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.service.VereinReadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+
+import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.ResponseEntity.ok;
+
+/**
+ * Eine @RestController-Klasse für den Export aller Vereine einschließlich Adresse und Umsatz. Die Vereine werden
+ * direkt in den Response geschrieben, ohne sie vorher als Liste oder CollectionModel aufzubauen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RestController
+@RequestMapping(REST_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class VereinExportController {
+    /**
+     * Pfad für den Export.
+     */
+    public static final String EXPORT_PATH = "/export";
+
+    /**
+     * MIME-Typ für CSV.
+     */
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE + ";charset=UTF-8");
+
+    private final VereinReadService service;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Alle Vereine als NDJSON exportieren, d.h. ein JSON-Datensatz pro Zeile.
+     *
+     * @return Response mit dem Statuscode 200 und den Vereinen als NDJSON-Stream
+     */
+    @GetMapping(path = EXPORT_PATH, produces = APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Alle Vereine als NDJSON exportieren", tags = "Export")
+    @ApiResponse(responseCode = "200", description = "Vereine als NDJSON")
+    ResponseEntity<StreamingResponseBody> exportNdjson() {
+        log.debug("exportNdjson");
+        // NDJSON: keine Zeilenumbrueche innerhalb eines Datensatzes, auch nicht im Profile "dev"
+        final var jsonWriter = objectMapper.writer().without(INDENT_OUTPUT);
+        return ok()
+            .contentType(APPLICATION_NDJSON)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"vereine.ndjson\"")
+            .body(export(null, verein -> jsonWriter.writeValueAsString(VereinExport.of(verein))));
+    }
+
+    /**
+     * Alle Vereine als CSV mit Kopfzeile exportieren.
+     *
+     * @return Response mit dem Statuscode 200 und den Vereinen als CSV-Stream
+     */
+    @GetMapping(path = EXPORT_PATH, produces = TEXT_CSV_VALUE)
+    @Operation(summary = "Alle Vereine als CSV exportieren", tags = "Export")
+    @ApiResponse(responseCode = "200", description = "Vereine als CSV")
+    ResponseEntity<StreamingResponseBody> exportCsv() {
+        log.debug("exportCsv");
+        return ok()
+            .contentType(TEXT_CSV)
+            .header(CONTENT_DISPOSITION, "attachment; filename=\"vereine.csv\"")
+            .body(export(VereinExport.CSV_HEADER, verein -> VereinExport.of(verein).toCsv()));
+    }
+
+    private StreamingResponseBody export(final String header, final Formatter formatter) {
+        // Ausfuehrung in einem separaten Thread fuer asynchrone Requests mit eigener Transaktion im Service
+        return outputStream -> {
+            final var writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+            if (header != null) {
+                writer.write(header);
+                writer.write('\n');
+            }
+            final var anzahl = service.export(verein -> {
+                try {
+                    writer.write(formatter.format(verein));
+                    writer.write('\n');
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+            log.debug("export: anzahl={}", anzahl);
+        };
+    }
+
+    /**
+     * Formatierung eines Vereins als Zeile im Export.
+     */
+    @FunctionalInterface
+    private interface Formatter {
+        String format(Verein verein) throws IOException;
+    }
+}
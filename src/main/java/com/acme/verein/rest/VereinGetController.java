@@ -17,6 +17,11 @@
 package com.acme.verein.rest;
 
 import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.Keyset;
+import com.acme.verein.repository.Sortierung;
+import com.acme.verein.repository.SyncToken;
+import com.acme.verein.repository.VereinUebersicht;
+import com.acme.verein.service.Facetten;
 import com.acme.verein.service.VereinReadService;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
@@ -32,14 +37,28 @@ import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import static com.acme.verein.repository.VereinUebersicht.FELDER;
 import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static com.acme.verein.service.VereinReadService.DEFAULT_PAGE_SIZE;
+import static com.acme.verein.service.VereinReadService.MAX_PAGE_SIZE;
+import static com.acme.verein.service.VereinReadService.MAX_SYNC_SIZE;
+import static com.acme.verein.service.VereinReadService.SORT;
+import static org.springframework.hateoas.IanaLinkRelations.NEXT;
+import static org.springframework.hateoas.IanaLinkRelations.PREV;
 import static org.springframework.hateoas.MediaTypes.HAL_JSON_VALUE;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.NOT_MODIFIED;
@@ -71,6 +90,26 @@ public class VereinGetController {
      */
     public static final String NACHNAME_PATH = "/name"; //NOSONAR
 
+    /**
+     * Pfad für die Facetten.
+     */
+    public static final String FACETTEN_PATH = "/facetten"; //NOSONAR
+
+    /**
+     * Pfad für die Suche nach ähnlichen Namen.
+     */
+    public static final String AEHNLICH_PATH = "/aehnlich"; //NOSONAR
+
+    /**
+     * Pfad für die Delta-Synchronisation.
+     */
+    public static final String CHANGES_PATH = "/changes"; //NOSONAR
+
+    /**
+     * Pfad für die Statistik der Umsätze.
+     */
+    public static final String UMSATZ_STATISTIK_PATH = "/umsatz-statistik"; //NOSONAR
+
     /**
      * Muster für eine UUID. [\dA-Fa-f]{8}-([\dA-Fa-f]{4}-){3}[\dA-Fa-f]{12} enthält eine "capturing group"
      * und ist nicht zulässig.
@@ -78,6 +117,45 @@ public class VereinGetController {
     static final String ID_PATTERN =
         "[\\dA-Fa-f]{8}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{12}";
 
+    /**
+     * Query-Parameter für die Anzahl der Vereine pro Seite.
+     */
+    static final String SIZE_PARAM = "size";
+
+    /**
+     * Query-Parameter für den Cursor, nach dem die nächste Seite beginnt.
+     */
+    static final String AFTER_PARAM = "after";
+
+    /**
+     * Query-Parameter für den Cursor, vor dem die vorherige Seite endet.
+     */
+    static final String BEFORE_PARAM = "before";
+
+    /**
+     * Query-Parameter für das Token der letzten Delta-Synchronisation.
+     */
+    static final String SINCE_PARAM = "since";
+
+    /**
+     * Query-Parameter für die maximale Anzahl an Namen bei der Autovervollständigung.
+     */
+    static final String LIMIT_PARAM = "limit";
+
+    /**
+     * Query-Parameter für die angeforderten Felder, z.B. fields=name,email oder mehrfach fields=name&amp;fields=email.
+     */
+    static final String FIELDS_PARAM = "fields";
+
+    /**
+     * Query-Parameter, um mit links=false die Links der einzelnen Vereine wegzulassen.
+     */
+    static final String LINKS_PARAM = "links";
+
+    private static final int DEFAULT_NAMEN_LIMIT = 10;
+    private static final int DEFAULT_FACETTEN_LIMIT = 20;
+    private static final int DEFAULT_SYNC_SIZE = 500;
+
     private final VereinReadService service;
     private final UriHelper uriHelper;
 
@@ -87,6 +165,8 @@ public class VereinGetController {
      *
      * @param id ID des zu suchenden Vereine
      * @param version Versionsnummer aus dem Header If-None-Match
+     * @param fields Die angeforderten Felder als Query-Parameter oder null für alle Felder
+     * @param links Query-Parameter, ob die Links geliefert werden sollen, Default: true
      * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
      * @param authentication Authentication-Objekt für Security
      * @return Ein Response mit dem Statuscode 200 und dem gefundenen Vereine mit Atom-Links oder Statuscode 404.
@@ -94,23 +174,29 @@ public class VereinGetController {
     @GetMapping(path = "{id:" + ID_PATTERN + "}", produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit der Verein-ID", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "Verein gefunden")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Felder")
     @ApiResponse(responseCode = "404", description = "Verein nicht gefunden")
-    @SuppressWarnings("ReturnCount")
+    @SuppressWarnings({"ReturnCount", "ParameterNumber"})
     ResponseEntity<VereinModel> findById(
         @PathVariable final UUID id,
         @RequestHeader("If-None-Match") final Optional<String> version,
+        @RequestParam(name = FIELDS_PARAM, required = false) final List<String> fields,
+        @RequestParam(name = LINKS_PARAM, required = false) final List<String> links,
         final HttpServletRequest request,
         final Authentication authentication
     ) {
         final var user = (UserDetails) authentication.getPrincipal();
-        log.debug("findById: id={}, version={}, user={}", id, version, user);
+        log.debug("findById: id={}, version={}, fields={}, links={}, user={}", id, version, fields, links, user);
         // KEIN Optional https://github.com/spring-projects/spring-security/issues/3208
         //noinspection DuplicatedCode
         if (user == null) {
             return status(FORBIDDEN).build();
         }
 
-        // Anwendungskern
+        final var felder = getFelder(fields, request);
+        final var mitLinks = getLinks(links, request);
+
+        // Anwendungskern: der Verein wird vollstaendig gecacht und nur die Serialisierung auf die Felder beschraenkt
         final var verein = service.findById(id);
         log.debug("findById: {}", verein);
 
@@ -119,13 +205,17 @@ public class VereinGetController {
             return status(NOT_MODIFIED).build();
         }
 
-        final var model = vereinToModel(verein, request);
+        final var model = mitLinks ? vereinToModel(verein, felder, request) : new VereinModel(verein, felder);
         log.debug("findById: model={}", model);
         return ok().eTag(currentVersion).body(model);
     }
 
-    private VereinModel vereinToModel(final Verein verein, final HttpServletRequest request) {
-        final var model = new VereinModel(verein);
+    private VereinModel vereinToModel(
+        final Verein verein,
+        final Set<String> felder,
+        final HttpServletRequest request
+    ) {
+        final var model = new VereinModel(verein, felder);
         final var baseUri = uriHelper.getBaseUri(request).toString();
         final var idUri = baseUri + '/' + verein.getId();
 
@@ -139,24 +229,143 @@ public class VereinGetController {
     }
 
     /**
-     * Suche mit diversen Suchkriterien als Query-Parameter.
+     * Suche mit diversen Suchkriterien als Query-Parameter. Das Resultat wird mit Keyset-Pagination seitenweise
+     * geliefert, wobei die Links "next" und "prev" die Cursor für die Nachbarseiten enthalten. Mit "fields" werden
+     * nur die Spalten der angeforderten Felder gelesen und mit "links=false" entfallen die Links der Vereine. Mit
+     * einem schwachen ETag im Header If-None-Match wird der Statuscode 304 geliefert, falls sich seitdem kein Verein
+     * geändert hat, ohne die Suche auszuführen.
      *
-     * @param suchkriterien Query-Parameter als Map.
+     * @param suchkriterien Query-Parameter als Map einschließlich sort für die Sortierung, size, after und before
+     *                      für die Pagination sowie fields und links für die Darstellung.
      * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
-     * @return Ein Response mit dem Statuscode 200 und den gefundenen Vereine als CollectionModel oder Statuscode 404.
+     * @param webRequest Das Request-Objekt für den Header If-None-Match und den Statuscode 304.
+     * @return Ein Response mit dem Statuscode 200 und den gefundenen Vereine als CollectionModel, Statuscode 304
+     *      oder Statuscode 404.
      */
     @GetMapping(produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit Suchkriterien", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "CollectionModel mid den Vereine")
+    @ApiResponse(responseCode = "304", description = "Keine Aenderungen seit dem ETag")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Suchkriterien, Sortierung, Pagination oder Felder")
     @ApiResponse(responseCode = "404", description = "Keine Vereine gefunden")
     CollectionModel<? extends VereinModel> find(
         @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien,
-        final HttpServletRequest request
+        final HttpServletRequest request,
+        final WebRequest webRequest
     ) {
         log.debug("find: suchkriterien={}", suchkriterien);
 
+        final var kriterien = new LinkedMultiValueMap<>(suchkriterien);
+        final var size = getSize(kriterien.remove(SIZE_PARAM), request);
+        final var after = getKeyset(kriterien.remove(AFTER_PARAM), kriterien.get(SORT), request);
+        final var before = getKeyset(kriterien.remove(BEFORE_PARAM), kriterien.get(SORT), request);
+        // fields und links bleiben fuer die Links "next" und "prev" erhalten
+        final var linkParams = new LinkedMultiValueMap<>(kriterien);
+        final var felder = getFelder(kriterien.remove(FIELDS_PARAM), request);
+        final var mitLinks = getLinks(kriterien.remove(LINKS_PARAM), request);
+
+        final var pageOpt = service.findFallsGeaendert(
+            stand -> isNotModified(stand, request, webRequest),
+            () -> service.find(kriterien, after, before, size, felder)
+        );
+        if (pageOpt.isEmpty()) {
+            // Statuscode 304 ohne Body
+            return null;
+        }
+        final var page = pageOpt.get();
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        final var models = page.content()
+            .stream()
+            .map(verein -> mitLinks ? uebersichtToModel(verein, felder, baseUri) : new VereinModel(verein, felder))
+            .toList();
+        log.debug("find: {}", models);
+
+        final var collectionModel = CollectionModel.of(models);
+        if (page.next() != null) {
+            collectionModel.add(pageLink(request, linkParams, size, AFTER_PARAM, page.next(), NEXT));
+        }
+        if (page.previous() != null) {
+            collectionModel.add(pageLink(request, linkParams, size, BEFORE_PARAM, page.previous(), PREV));
+        }
+        return collectionModel;
+    }
+
+    /**
+     * Suche nach Vereinen mit einem ähnlichen Namen, z.B. trotz Tippfehlern. Die Vereine sind absteigend nach der
+     * Ähnlichkeit sortiert.
+     *
+     * @param name Der ungefähre Name als Query-Parameter.
+     * @param size Maximale Anzahl der Vereine als Query-Parameter.
+     * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
+     * @param webRequest Das Request-Objekt für den Header If-None-Match und den Statuscode 304.
+     * @return Ein Response mit dem Statuscode 200 und den gefundenen Vereine als CollectionModel, Statuscode 304
+     *      oder Statuscode 404.
+     */
+    @GetMapping(path = AEHNLICH_PATH, produces = HAL_JSON_VALUE)
+    @Operation(summary = "Suche mit aehnlichem Namen", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "CollectionModel mid den Vereine")
+    @ApiResponse(responseCode = "304", description = "Keine Aenderungen seit dem ETag")
+    @ApiResponse(responseCode = "404", description = "Keine Vereine gefunden")
+    CollectionModel<? extends VereinModel> findByNameAehnlich(
+        @RequestParam final String name,
+        @RequestParam(name = SIZE_PARAM, required = false) final List<String> size,
+        final HttpServletRequest request,
+        final WebRequest webRequest
+    ) {
+        log.debug("findByNameAehnlich: name={}, size={}", name, size);
+        final var limit = getSize(size, request);
+        final var vereine = service.findFallsGeaendert(
+            stand -> isNotModified(stand, request, webRequest),
+            () -> service.findByNameAehnlich(name, limit)
+        );
+        if (vereine.isEmpty()) {
+            return null;
+        }
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        final var models = vereine.get()
+            .stream()
+            .map(verein -> uebersichtToModel(verein, FELDER, baseUri))
+            .toList();
+        log.debug("findByNameAehnlich: {}", models);
+        return CollectionModel.of(models);
+    }
+
+    /**
+     * Delta-Synchronisation: die Vereine, die seit dem Token geändert oder gelöscht wurden. Ohne Token werden alle
+     * Vereine geliefert. Der Client speichert das Token aus "next" und verwendet es bei der nächsten Synchronisation;
+     * bei "hasMore" kann er sofort fortsetzen.
+     *
+     * @param since Das Token aus "next" der letzten Synchronisation als Query-Parameter
+     * @param size Maximale Anzahl der Vereine als Query-Parameter, höchstens MAX_SYNC_SIZE
+     * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
+     * @return Ein Response mit dem Statuscode 200 und den Änderungen, Statuscode 400 bei einem ungültigen Token oder
+     *      Statuscode 410, falls das Token abgelaufen und eine vollständige Synchronisation erforderlich ist.
+     */
+    @GetMapping(path = CHANGES_PATH, produces = HAL_JSON_VALUE)
+    @Operation(summary = "Aenderungen seit einem Token fuer die Delta-Synchronisation", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Geaenderte Vereine und IDs der geloeschten Vereine")
+    @ApiResponse(responseCode = "400", description = "Ungueltiges Token oder ungueltige Anzahl")
+    @ApiResponse(responseCode = "410", description = "Token abgelaufen, vollstaendige Synchronisation erforderlich")
+    DeltaModel findAenderungen(
+        @RequestParam(name = SINCE_PARAM, required = false) final String since,
+        @RequestParam(name = SIZE_PARAM, required = false) final List<String> size,
+        final HttpServletRequest request
+    ) {
+        log.debug("findAenderungen: since={}, size={}", since, size);
+        final SyncToken seit;
+        try {
+            seit = since == null ? null : SyncToken.decode(since);
+        } catch (final IllegalArgumentException ex) {
+            throw new QueryParamInvalidException(
+                "Ungueltiges Token " + since,
+                URI.create(request.getRequestURL().toString()),
+                ex
+            );
+        }
+
+        final var delta = service.findAenderungen(seit, getSize(size, DEFAULT_SYNC_SIZE, MAX_SYNC_SIZE, request));
         final var baseUri = uriHelper.getBaseUri(request).toString();
-        final var models = service.find(suchkriterien)
+        final var vereine = delta.vereine()
             .stream()
             .map(verein -> {
                 final var model = new VereinModel(verein);
@@ -164,22 +373,240 @@ public class VereinGetController {
                 return model;
             })
             .toList();
-        log.debug("find: {}", models);
-        return CollectionModel.of(models);
+        final var next = delta.next().encode();
+        final var model = new DeltaModel(vereine, delta.geloescht(), next, delta.hasMore());
+        // das Token ist Base64 fuer URLs und muss nicht kodiert werden
+        model.add(Link.of(baseUri + CHANGES_PATH + '?' + SINCE_PARAM + '=' + next, NEXT));
+        log.debug("findAenderungen: {}", model);
+        return model;
+    }
+
+    private static VereinModel uebersichtToModel(
+        final VereinUebersicht verein,
+        final Set<String> felder,
+        final String baseUri
+    ) {
+        final var model = new VereinModel(verein, felder);
+        model.add(Link.of(baseUri + '/' + verein.id()));
+        return model;
+    }
+
+    private int getSize(final List<String> sizeParam, final HttpServletRequest request) {
+        return getSize(sizeParam, DEFAULT_PAGE_SIZE, request);
+    }
+
+    private int getSize(final List<String> sizeParam, final int defaultSize, final HttpServletRequest request) {
+        return getSize(sizeParam, defaultSize, MAX_PAGE_SIZE, request);
+    }
+
+    private int getSize(
+        final List<String> sizeParam,
+        final int defaultSize,
+        final int maxSize,
+        final HttpServletRequest request
+    ) {
+        if (sizeParam == null || sizeParam.isEmpty()) {
+            return defaultSize;
+        }
+        final int size;
+        try {
+            size = Integer.parseInt(sizeParam.get(0));
+        } catch (final NumberFormatException ex) {
+            throw new QueryParamInvalidException(
+                "Ungueltige Seitengroesse " + sizeParam.get(0),
+                URI.create(request.getRequestURL().toString()),
+                ex
+            );
+        }
+        if (size < 1) {
+            throw new QueryParamInvalidException(
+                "Ungueltige Seitengroesse " + size,
+                URI.create(request.getRequestURL().toString())
+            );
+        }
+        // harte Obergrenze, unabhaengig vom Client
+        return Math.min(size, maxSize);
+    }
+
+    private Keyset getKeyset(
+        final List<String> cursorParam,
+        final List<String> sortParam,
+        final HttpServletRequest request
+    ) {
+        if (cursorParam == null || cursorParam.isEmpty()) {
+            return null;
+        }
+        final Keyset keyset;
+        try {
+            keyset = Keyset.decode(cursorParam.get(0));
+        } catch (final IllegalArgumentException ex) {
+            throw new QueryParamInvalidException(
+                "Ungueltiger Cursor " + cursorParam.get(0),
+                URI.create(request.getRequestURL().toString()),
+                ex
+            );
+        }
+        // eine ungueltige Sortierung meldet der Service
+        final var sortierung = sortParam == null || sortParam.isEmpty()
+            ? Optional.of(Sortierung.NAME)
+            : Sortierung.of(sortParam.get(0));
+        if (sortierung.isPresent() && sortierung.get() != keyset.sortierung()) {
+            throw new QueryParamInvalidException(
+                "Der Cursor " + cursorParam.get(0) + " passt nicht zur Sortierung",
+                URI.create(request.getRequestURL().toString())
+            );
+        }
+        return keyset;
+    }
+
+    private Set<String> getFelder(final List<String> fieldsParam, final HttpServletRequest request) {
+        if (fieldsParam == null || fieldsParam.isEmpty()) {
+            return FELDER;
+        }
+        // sowohl fields=name,email als auch fields=name&fields=email
+        final Set<String> felder = new HashSet<>();
+        fieldsParam.stream()
+            .flatMap(fields -> Arrays.stream(fields.split(",")))
+            .map(String::strip)
+            .filter(feld -> !feld.isEmpty())
+            .forEach(felder::add);
+        final var unbekannt = felder.stream()
+            .filter(feld -> !FELDER.contains(feld))
+            .sorted()
+            .toList();
+        if (!unbekannt.isEmpty()) {
+            throw new QueryParamInvalidException(
+                "Ungueltige Felder " + unbekannt + ", zulaessig sind " + FELDER.stream().sorted().toList(),
+                URI.create(request.getRequestURL().toString())
+            );
+        }
+        return felder.isEmpty() ? FELDER : Set.copyOf(felder);
+    }
+
+    private boolean getLinks(final List<String> linksParam, final HttpServletRequest request) {
+        if (linksParam == null || linksParam.isEmpty()) {
+            return true;
+        }
+        final var links = linksParam.get(0);
+        if ("true".equalsIgnoreCase(links)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(links)) {
+            return false;
+        }
+        throw new QueryParamInvalidException(
+            "Ungueltiger Wert fuer links: " + links,
+            URI.create(request.getRequestURL().toString())
+        );
+    }
+
+    @SuppressWarnings("ParameterNumber")
+    private Link pageLink(
+        final HttpServletRequest request,
+        final MultiValueMap<String, String> kriterien,
+        final int size,
+        final String cursorParam,
+        final Keyset keyset,
+        final LinkRelation relation
+    ) {
+        final var queryParams = new LinkedMultiValueMap<>(kriterien);
+        queryParams.set(SIZE_PARAM, String.valueOf(size));
+        queryParams.set(cursorParam, keyset.encode());
+        return Link.of(uriHelper.getUri(request, queryParams).toString(), relation);
     }
 
     /**
-     * Abfrage, welche Namen es zu einem Präfix gibt.
+     * Abfrage, welche Namen es zu einem Präfix gibt, z.B. für die Autovervollständigung.
      *
      * @param prefix Name-Präfix als Pfadvariable.
-     * @return Die passenden Namen oder Statuscode 404, falls es keine gibt.
+     * @param limit Maximale Anzahl der Namen als Query-Parameter.
+     * @param request Das Request-Objekt, um ggf. die URL für ProblemDetail zu ermitteln.
+     * @return Die passenden Namen als JSON-Array oder Statuscode 404, falls es keine gibt.
      */
     @GetMapping(path = NACHNAME_PATH + "/{prefix}", produces = APPLICATION_JSON_VALUE)
     @Operation(summary = "Suche Namen mit Praefix", tags = "Suchen")
-    String findNamenByPrefix(@PathVariable final String prefix) {
-        log.debug("findNamenByPrefix: {}", prefix);
-        final var namen = service.findNamenByPrefix(prefix);
+    @ApiResponse(responseCode = "200", description = "Namen als JSON-Array")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Anzahl")
+    @ApiResponse(responseCode = "404", description = "Keine Namen gefunden")
+    List<String> findNamenByPrefix(
+        @PathVariable final String prefix,
+        @RequestParam(name = LIMIT_PARAM, required = false) final List<String> limit,
+        final HttpServletRequest request
+    ) {
+        log.debug("findNamenByPrefix: prefix={}, limit={}", prefix, limit);
+        final var namen = service.findNamenByPrefix(prefix, getSize(limit, DEFAULT_NAMEN_LIMIT, request));
         log.debug("findNamenByPrefix: {}", namen);
-        return namen.toString();
+        return namen;
+    }
+
+    /**
+     * Die Facetten Ort, PLZ-Region und Gründungsjahr mit der Anzahl der Vereine abfragen, z.B. für die Anzeige neben
+     * dem Suchformular. Die Anzahlen werden aus In-Memory-Zählern gelesen und sind daher unabhängig von der Anzahl
+     * der Vereine.
+     *
+     * @param limit Maximale Anzahl an Werten pro Facette als Query-Parameter.
+     * @param request Das Request-Objekt, um ggf. die URL für ProblemDetail zu ermitteln.
+     * @return Die Facetten als JSON-Objekt mit den häufigsten Werten.
+     */
+    @GetMapping(path = FACETTEN_PATH, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Anzahl der Vereine pro Ort, PLZ-Region und Gruendungsjahr", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Facetten als JSON-Objekt")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Anzahl")
+    Facetten getFacetten(
+        @RequestParam(name = LIMIT_PARAM, required = false) final List<String> limit,
+        final HttpServletRequest request
+    ) {
+        log.debug("getFacetten: limit={}", limit);
+        final var facetten = service.getFacetten(getSize(limit, DEFAULT_FACETTEN_LIMIT, request));
+        log.debug("getFacetten: {}", facetten);
+        return facetten;
+    }
+
+    /**
+     * Statistik der Umsätze pro Währung mit Summe, Durchschnitt und Perzentilen für alle Vereine oder die Vereine zu
+     * Suchkriterien. Wie bei der Suche wird mit einem schwachen ETag ggf. der Statuscode 304 geliefert.
+     *
+     * @param suchkriterien Suchkriterien wie bei der Suche als Query-Parameter
+     * @param request Das Request-Objekt für die Query-Parameter im ETag
+     * @param webRequest Das Request-Objekt für den Header If-None-Match und den Statuscode 304.
+     * @return Die Statistik pro Währung als JSON-Array oder Statuscode 304
+     */
+    @GetMapping(path = UMSATZ_STATISTIK_PATH, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Summe, Durchschnitt und Perzentile der Umsaetze pro Waehrung", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Statistik als JSON-Array")
+    @ApiResponse(responseCode = "304", description = "Keine Aenderungen seit dem ETag")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Suchkriterien")
+    List<UmsatzStatistikModel> getUmsatzStatistik(
+        @RequestParam @NonNull final MultiValueMap<String, String> suchkriterien,
+        final HttpServletRequest request,
+        final WebRequest webRequest
+    ) {
+        log.debug("getUmsatzStatistik: suchkriterien={}", suchkriterien);
+        final var statistik = service.findFallsGeaendert(
+            stand -> isNotModified(stand, request, webRequest),
+            () -> service.getUmsatzStatistik(suchkriterien)
+        );
+        if (statistik.isEmpty()) {
+            return null;
+        }
+        final var models = statistik.get()
+            .stream()
+            .map(UmsatzStatistikModel::new)
+            .toList();
+        log.debug("getUmsatzStatistik: {}", models);
+        return models;
+    }
+
+    // schwaches ETag aus dem Stand aller Vereine und den Query-Parametern: eine einzige kurze Query statt der Suche,
+    // Spring setzt den Header ETag bzw. den Statuscode 304
+    private static boolean isNotModified(
+        final String stand,
+        final HttpServletRequest request,
+        final WebRequest webRequest
+    ) {
+        final var etag = "W/\"" + stand + '-' + Integer.toHexString(Objects.hashCode(request.getQueryString())) + '"';
+        final var notModified = webRequest.checkNotModified(etag);
+        log.trace("isNotModified: etag={}, notModified={}", etag, notModified);
+        return notModified;
     }
 }
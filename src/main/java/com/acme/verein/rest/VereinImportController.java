@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.service.ImportReport;
+import com.acme.verein.service.ImportZeile;
+import com.acme.verein.service.VereinImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.acme.verein.rest.VereinExportController.TEXT_CSV_VALUE;
+import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Spliterator.ORDERED;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
+/**
+ * Eine @RestController-Klasse für den Massenimport von Vereinen im Format des Exports, d.h. als CSV mit Kopfzeile
+ * oder als NDJSON. Der Request-Body wird als Stream gelesen und nicht vollständig in den Heap geladen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@RestController
+@RequestMapping(REST_PATH)
+@RequiredArgsConstructor
+@Slf4j
+public class VereinImportController {
+    /**
+     * Pfad für den Import.
+     */
+    public static final String IMPORT_PATH = "/import";
+
+    private final VereinImportService service;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Vereine aus CSV mit Kopfzeile importieren.
+     *
+     * @param body Der Request-Body als Stream
+     * @return Bericht über den Import mit den fehlerhaften Zeilen und dem Durchsatz
+     * @throws IOException Falls der Request-Body nicht gelesen werden kann
+     */
+    @PostMapping(path = IMPORT_PATH, consumes = TEXT_CSV_VALUE, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Vereine aus CSV importieren", tags = "Import")
+    @ApiResponse(responseCode = "200", description = "Bericht über den Import")
+    ImportReport importCsv(final InputStream body) throws IOException {
+        log.debug("importCsv");
+        try (var reader = new BufferedReader(new InputStreamReader(body, UTF_8))) {
+            final var csv = new CsvReader(reader);
+            if (!csv.hasNext()) {
+                return service.importVereine(Stream.empty());
+            }
+            final var header = csv.next().werte();
+            final var zeilen = StreamSupport.stream(Spliterators.spliteratorUnknownSize(csv, ORDERED), false)
+                .map(datensatz -> fromCsv(header, datensatz));
+            return service.importVereine(zeilen);
+        }
+    }
+
+    /**
+     * Vereine aus NDJSON importieren, d.h. ein JSON-Datensatz pro Zeile.
+     *
+     * @param body Der Request-Body als Stream
+     * @return Bericht über den Import mit den fehlerhaften Zeilen und dem Durchsatz
+     * @throws IOException Falls der Request-Body nicht gelesen werden kann
+     */
+    @PostMapping(path = IMPORT_PATH, consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Vereine aus NDJSON importieren", tags = "Import")
+    @ApiResponse(responseCode = "200", description = "Bericht über den Import")
+    ImportReport importNdjson(final InputStream body) throws IOException {
+        log.debug("importNdjson");
+        try (var reader = new BufferedReader(new InputStreamReader(body, UTF_8))) {
+            final var nummer = new AtomicLong();
+            final var zeilen = reader.lines()
+                .map(line -> fromJson(nummer.incrementAndGet(), line))
+                .filter(Objects::nonNull);
+            return service.importVereine(zeilen);
+        }
+    }
+
+    private static ImportZeile fromCsv(final List<String> header, final CsvReader.Datensatz datensatz) {
+        try {
+            return ImportZeile.of(datensatz.zeile(), VereinExport.fromCsv(header, datensatz.werte()).toVerein());
+        } catch (final IllegalArgumentException ex) {
+            return ImportZeile.ofFehler(datensatz.zeile(), ex.getMessage());
+        }
+    }
+
+    private ImportZeile fromJson(final long nummer, final String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return ImportZeile.of(nummer, objectMapper.readValue(line, VereinExport.class).toVerein());
+        } catch (final JsonProcessingException ex) {
+            return ImportZeile.ofFehler(nummer, "Ungueltiger JSON-Datensatz: " + ex.getOriginalMessage());
+        }
+    }
+}
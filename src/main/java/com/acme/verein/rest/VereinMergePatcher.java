@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Adresse;
+import com.acme.verein.entity.Adresse_;
+import com.acme.verein.entity.Umsatz;
+import com.acme.verein.entity.Umsatz_;
+import com.acme.verein.entity.Verein;
+import com.acme.verein.entity.Verein_;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Umwandlung eines JSON Merge Patch gemäß RFC 7396 in Änderungen an einem Verein. Ein Feld, das im Patch fehlt, wird
+ * nicht geändert, und ein Feld mit null wird auf null gesetzt. Adresse und Umsatz werden rekursiv gemischt, d.h. nur
+ * die angegebenen Felder ändern sich, und mit null wird der Umsatz entfernt. Die Adresse kann nicht entfernt werden,
+ * weil sie z.B. bei GraphQL ein Pflichtfeld ist. Die Werte werden sofort geprüft und konvertiert, damit ein
+ * syntaktisch falscher Patch keine Transaktion öffnet. Die Constraints prüft VereinWriteService wie bei PUT.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Slf4j
+final class VereinMergePatcher {
+    private VereinMergePatcher() {
+    }
+
+    /**
+     * Einen Merge Patch in die Änderungen an einem Verein umwandeln.
+     *
+     * @param patch Der Merge Patch aus dem Request-Body
+     * @param uri Die URI des Requests für ProblemDetail
+     * @return Die Änderungen, die auf einen Verein angewendet werden
+     * @throws PatchInvalidException Falls der Patch kein JSON-Objekt ist, ein unbekanntes Feld enthält, die
+     *      Adresse entfernen soll oder ein Wert nicht konvertiert werden kann.
+     */
+    static Consumer<Verein> toAenderungen(final JsonNode patch, final URI uri) {
+        log.debug("toAenderungen: {}", patch);
+        if (patch == null || !patch.isObject()) {
+            throw new PatchInvalidException("Der Merge Patch muss ein JSON-Objekt sein", uri);
+        }
+
+        final List<Consumer<Verein>> aenderungen = new ArrayList<>(patch.size());
+        final var felder = patch.fields();
+        while (felder.hasNext()) {
+            final var feld = felder.next();
+            final var wert = feld.getValue();
+            aenderungen.add(switch (feld.getKey()) {
+                case Verein_.NAME -> {
+                    final var name = toText(Verein_.NAME, wert, uri);
+                    yield verein -> verein.setName(name);
+                }
+                case Verein_.EMAIL -> {
+                    final var email = toText(Verein_.EMAIL, wert, uri);
+                    yield verein -> verein.setEmail(email);
+                }
+                case Verein_.GRUENDUNGSDATUM -> {
+                    final var gruendungsdatum = toGruendungsdatum(wert, uri);
+                    yield verein -> verein.setGruendungsdatum(gruendungsdatum);
+                }
+                case Verein_.HOMEPAGE -> {
+                    final var homepage = toHomepage(wert, uri);
+                    yield verein -> verein.setHomepage(homepage);
+                }
+                case Verein_.ADRESSE -> toAdresse(wert, uri);
+                case Verein_.UMSATZ -> toUmsatz(wert, uri);
+                default -> throw new PatchInvalidException("Unbekanntes Feld " + feld.getKey(), uri);
+            });
+        }
+        return verein -> aenderungen.forEach(aenderung -> aenderung.accept(verein));
+    }
+
+    private static Consumer<Verein> toAdresse(final JsonNode patch, final URI uri) {
+        if (!patch.isObject()) {
+            throw new PatchInvalidException("Das Feld " + Verein_.ADRESSE + " muss ein JSON-Objekt sein", uri);
+        }
+        final List<Consumer<Adresse>> aenderungen = new ArrayList<>(patch.size());
+        final var felder = patch.fields();
+        while (felder.hasNext()) {
+            final var feld = felder.next();
+            final var wert = feld.getValue();
+            aenderungen.add(switch (feld.getKey()) {
+                case Adresse_.PLZ -> {
+                    final var plz = toText(Verein_.ADRESSE + '.' + Adresse_.PLZ, wert, uri);
+                    yield adresse -> adresse.setPlz(plz);
+                }
+                case Adresse_.ORT -> {
+                    final var ort = toText(Verein_.ADRESSE + '.' + Adresse_.ORT, wert, uri);
+                    yield adresse -> adresse.setOrt(ort);
+                }
+                default -> throw new PatchInvalidException(
+                    "Unbekanntes Feld " + Verein_.ADRESSE + '.' + feld.getKey(),
+                    uri
+                );
+            });
+        }
+        return verein -> {
+            if (verein.getAdresse() == null) {
+                verein.setAdresse(new Adresse());
+            }
+            final var adresse = verein.getAdresse();
+            aenderungen.forEach(aenderung -> aenderung.accept(adresse));
+        };
+    }
+
+    private static Consumer<Verein> toUmsatz(final JsonNode patch, final URI uri) {
+        if (patch.isNull()) {
+            return verein -> verein.setUmsatz(null);
+        }
+        if (!patch.isObject()) {
+            throw new PatchInvalidException("Das Feld " + Verein_.UMSATZ + " muss ein JSON-Objekt sein", uri);
+        }
+        final List<Consumer<Umsatz>> aenderungen = new ArrayList<>(patch.size());
+        final var felder = patch.fields();
+        while (felder.hasNext()) {
+            final var feld = felder.next();
+            final var wert = feld.getValue();
+            aenderungen.add(switch (feld.getKey()) {
+                case Umsatz_.BETRAG -> {
+                    final var betrag = toBetrag(wert, uri);
+                    yield umsatz -> umsatz.setBetrag(betrag);
+                }
+                case Umsatz_.WAEHRUNG -> {
+                    final var waehrung = toWaehrung(wert, uri);
+                    yield umsatz -> umsatz.setWaehrung(waehrung);
+                }
+                default -> throw new PatchInvalidException(
+                    "Unbekanntes Feld " + Verein_.UMSATZ + '.' + feld.getKey(),
+                    uri
+                );
+            });
+        }
+        return verein -> {
+            if (verein.getUmsatz() == null) {
+                // ohne Betrag oder Waehrung verletzt der neue Umsatz die Constraints
+                verein.setUmsatz(new Umsatz());
+            }
+            final var umsatz = verein.getUmsatz();
+            aenderungen.forEach(aenderung -> aenderung.accept(umsatz));
+        };
+    }
+
+    private static String toText(final String feld, final JsonNode wert, final URI uri) {
+        if (wert.isNull()) {
+            return null;
+        }
+        if (!wert.isTextual()) {
+            throw new PatchInvalidException("Das Feld " + feld + " muss ein String sein", uri);
+        }
+        return wert.textValue();
+    }
+
+    private static LocalDate toGruendungsdatum(final JsonNode wert, final URI uri) {
+        final var text = toText(Verein_.GRUENDUNGSDATUM, wert, uri);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (final DateTimeParseException ex) {
+            throw new PatchInvalidException("Ungueltiges Gruendungsdatum " + text, uri, ex);
+        }
+    }
+
+    private static BigDecimal toBetrag(final JsonNode wert, final URI uri) {
+        if (wert.isNull()) {
+            return null;
+        }
+        if (!wert.isNumber()) {
+            throw new PatchInvalidException(
+                "Das Feld " + Verein_.UMSATZ + '.' + Umsatz_.BETRAG + " muss eine Zahl sein",
+                uri
+            );
+        }
+        return wert.decimalValue();
+    }
+
+    private static Currency toWaehrung(final JsonNode wert, final URI uri) {
+        final var text = toText(Verein_.UMSATZ + '.' + Umsatz_.WAEHRUNG, wert, uri);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Currency.getInstance(text);
+        } catch (final IllegalArgumentException ex) {
+            throw new PatchInvalidException("Ungueltige Waehrung " + text, uri, ex);
+        }
+    }
+
+    private static URL toHomepage(final JsonNode wert, final URI uri) {
+        final var text = toText(Verein_.HOMEPAGE, wert, uri);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return URI.create(text).toURL();
+        } catch (final IllegalArgumentException | MalformedURLException ex) {
+            throw new PatchInvalidException("Ungueltige Homepage " + text, uri, ex);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.acme.verein.rest;
 
 import com.acme.verein.entity.*;
+import com.acme.verein.repository.VereinUebersicht;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -28,10 +29,14 @@ import org.springframework.hateoas.server.core.Relation;
 import java.net.URL;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+
+import static com.acme.verein.repository.VereinUebersicht.FELDER;
 
 /**
  * Model-Klasse für Spring HATEOAS. @lombok.Data fasst die Annotationen @ToString, @EqualsAndHashCode, @Getter, @Setter
- * und @RequiredArgsConstructor zusammen.
+ * und @RequiredArgsConstructor zusammen. Nicht angeforderte Felder sind null und werden wegen
+ * "default-property-inclusion: non_null" nicht serialisiert.
  * <img src="../../../../../asciidoc/VereinModel.svg" alt="Klassendiagramm">
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
@@ -53,13 +58,31 @@ class VereinModel extends RepresentationModel<VereinModel> {
 
     private final LocalDate gruendungsdatum;
     private final URL homepage;
-    private final Adresse adresse;
+    private final AdresseDTO adresse;
 
     VereinModel(final Verein verein) {
-        name = verein.getName();
-        email = verein.getEmail();
-        gruendungsdatum = verein.getGruendungsdatum();
-        homepage = verein.getHomepage();
-        adresse = verein.getAdresse();
+        this(verein, FELDER);
+    }
+
+    VereinModel(final Verein verein, final Set<String> felder) {
+        name = felder.contains(Verein_.NAME) ? verein.getName() : null;
+        email = felder.contains(Verein_.EMAIL) ? verein.getEmail() : null;
+        gruendungsdatum = felder.contains(Verein_.GRUENDUNGSDATUM) ? verein.getGruendungsdatum() : null;
+        homepage = felder.contains(Verein_.HOMEPAGE) ? verein.getHomepage() : null;
+        final var adresseEntity = felder.contains(Verein_.ADRESSE) ? verein.getAdresse() : null;
+        adresse = adresseEntity == null ? null : new AdresseDTO(adresseEntity.getPlz(), adresseEntity.getOrt());
+    }
+
+    VereinModel(final VereinUebersicht verein) {
+        this(verein, FELDER);
+    }
+
+    VereinModel(final VereinUebersicht verein, final Set<String> felder) {
+        name = felder.contains(Verein_.NAME) ? verein.name() : null;
+        email = verein.email();
+        gruendungsdatum = verein.gruendungsdatum();
+        homepage = verein.homepage();
+        // ohne das Feld adresse sind PLZ und Ort null
+        adresse = verein.plz() == null && verein.ort() == null ? null : new AdresseDTO(verein.plz(), verein.ort());
     }
 }
@@ -18,6 +18,7 @@ package com.acme.verein.rest;
 
 
 import com.acme.verein.service.*;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
@@ -28,10 +29,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -60,10 +64,24 @@ public class VereinWriteController {
     @SuppressWarnings("TrailingComment")
     public static final String PROBLEM_PATH = "/problem/"; //NOSONAR
 
+    /**
+     * Pfad, um mehrere Vereine auf einmal neu anzulegen.
+     */
+    public static final String BATCH_PATH = "/batch";
+
+    /**
+     * MIME-Typ für JSON Merge Patch gemäß RFC 7396.
+     */
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    /**
+     * Query-Parameter für die IDs beim Löschen mehrerer Vereine.
+     */
+    public static final String ID_PARAM = "id";
+
     private static final String VERSIONSNUMMER_FEHLT = "Versionsnummer fehlt";
 
     private final VereinWriteService service;
-    private final VereinReadService readService;
 
     private final UriHelper uriHelper;
 
@@ -94,6 +112,27 @@ public class VereinWriteController {
         return created(location).build();
     }
 
+    /**
+     * Mehrere neue Verein-Datensätze anlegen. Ungültige Vereine werden nicht angelegt, ohne dass die übrigen Vereine
+     * davon betroffen sind.
+     *
+     * @param vereinDTOs Die neu anzulegenden Vereine aus dem Request-Body, höchstens MAX_BATCH_SIZE
+     * @return Response mit Statuscode 200 und einem Ergebnis pro Verein in derselben Reihenfolge, d.h. mit der
+     *      generierten ID oder mit den Fehlermeldungen, oder Statuscode 400 falls syntaktische Fehler im Request-Body
+     *      vorliegen oder es zu viele Vereine sind.
+     */
+    @PostMapping(path = BATCH_PATH, consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Mehrere neue Vereine anlegen", tags = "Neuanlegen")
+    @ApiResponse(responseCode = "200", description = "Ergebnis pro Verein")
+    @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body oder zu viele Vereine")
+    List<BatchResult> createMany(@RequestBody final List<VereinDTO> vereinDTOs) {
+        log.debug("createMany: anzahl={}", vereinDTOs.size());
+        final var vereine = vereinDTOs.stream()
+            .map(VereinDTO::toVerein)
+            .toList();
+        return service.createMany(vereine);
+    }
+
     /**
      * Einen vorhandenen Verein-Datensatz überschreiben.
      *
@@ -121,9 +160,9 @@ public class VereinWriteController {
     ) {
         log.debug("update: id={}, {}", id, vereinDTO);
         final int versionInt = getVersion(version, request);
-        final var verein = service.update(vereinDTO.toVerein(), id, versionInt);
-        log.debug("update: {}", verein);
-        return noContent().eTag("\"" + verein.getVersion() + '"').build();
+        final var versionNeu = service.update(vereinDTO.toVerein(), id, versionInt);
+        log.debug("update: versionNeu={}", versionNeu);
+        return noContent().eTag("\"" + versionNeu + '"').build();
     }
 
     @SuppressWarnings({"MagicNumber", "RedundantSuppression"})
@@ -164,17 +203,19 @@ public class VereinWriteController {
     }
 
     /**
-     * Einen vorhandenen Verein-Datensatz durch PATCH aktualisieren.
+     * Einen vorhandenen Verein-Datensatz durch einen JSON Merge Patch gemäß RFC 7396 aktualisieren, d.h. nur die
+     * Felder im Request-Body werden geändert.
      *
      * @param id ID des zu aktualisierenden Vereine.
+     * @param patch Der Merge Patch aus dem Request-Body
      * @param version Versionsnummer aus dem Header If-Match
      * @param authentication Authentication-Objekt für Security
      * @param request Das Request-Objekt, um ggf. die URL für ProblemDetail zu ermitteln
-     * @return Response mit Statuscode 204 oder Statuscode 400, falls der JSON-Datensatz syntaktisch nicht korrekt ist
+     * @return Response mit Statuscode 204 oder Statuscode 400, falls der Merge Patch syntaktisch nicht korrekt ist
      *      oder 422 falls Constraints verletzt sind oder die Emailadresse bereits existiert
      *      oder 412 falls die Versionsnummer nicht ok ist oder 428 falls die Versionsnummer fehlt.
      */
-    @PatchMapping(path = "{id:" + ID_PATTERN + "}", consumes = APPLICATION_JSON_VALUE)
+    @PatchMapping(path = "{id:" + ID_PATTERN + "}", consumes = MERGE_PATCH_JSON_VALUE)
     @Operation(summary = "Einen Vereine mit einzelnen neuen Werten aktualisieren", tags = "Aktualisieren")
     @ApiResponse(responseCode = "204", description = "Aktualisiert")
     @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body")
@@ -184,25 +225,23 @@ public class VereinWriteController {
     @ApiResponse(responseCode = "428", description = VERSIONSNUMMER_FEHLT)
     ResponseEntity<Void> patch(
         @PathVariable final UUID id,
+        @RequestBody final JsonNode patch,
         @RequestHeader("If-Match") final Optional<String> version,
         final Authentication authentication,
         final HttpServletRequest request
     ) {
         final var user = (UserDetails) authentication.getPrincipal();
-        log.debug("version={}, operations={}, user={}", id, version, user);
+        log.debug("patch: id={}, version={}, patch={}, user={}", id, version, patch, user);
         //noinspection DuplicatedCode
         if (user == null) {
             return status(FORBIDDEN).build();
         }
 
         final int versionInt = getVersion(version, request);
-
-        final var verein = readService.findById(id);
-        log.debug("patch: {}", verein);
-
-        final var vereinDb = service.update(verein, id, versionInt);
-        log.debug("patch: {}", vereinDb);
-        return noContent().eTag("\"" + vereinDb.getVersion() + '"').build();
+        final var aenderungen = VereinMergePatcher.toAenderungen(patch, URI.create(request.getRequestURL().toString()));
+        final var versionNeu = service.patch(id, versionInt, aenderungen);
+        log.debug("patch: versionNeu={}", versionNeu);
+        return noContent().eTag("\"" + versionNeu + '"').build();
     }
 
     /**
@@ -219,6 +258,50 @@ public class VereinWriteController {
         service.deleteById(id);
     }
 
+    /**
+     * Mehrere Vereine mit ihren Adressen und Umsätzen löschen, entweder anhand der IDs im Query-Parameter "id" oder
+     * anhand von Suchkriterien wie bei GET.
+     *
+     * @param params Entweder ausschließlich IDs oder mindestens ein Suchkriterium
+     * @param request Das Request-Objekt, um ggf. die URL für ProblemDetail zu ermitteln
+     * @return Response mit Statuscode 200 und der Anzahl der gelöschten Datensätze pro Tabelle oder Statuscode 400,
+     *      falls eine ID oder ein Suchkriterium ungültig ist oder kein Query-Parameter angegeben ist
+     */
+    @DeleteMapping(produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Mehrere Vereine anhand der IDs oder von Suchkriterien loeschen", tags = "Loeschen")
+    @ApiResponse(responseCode = "200", description = "Anzahl der geloeschten Datensaetze")
+    @ApiResponse(responseCode = "400", description = "Ungueltige ID oder ungueltiges Suchkriterium")
+    DeleteResult deleteMany(
+        @RequestParam final MultiValueMap<String, String> params,
+        final HttpServletRequest request
+    ) {
+        log.debug("deleteMany: params={}", params);
+        final var idParams = params.get(ID_PARAM);
+        if (idParams == null) {
+            return service.deleteBySuchkriterien(params);
+        }
+        if (params.size() > 1) {
+            throw new QueryParamInvalidException(
+                "IDs und Suchkriterien koennen nicht kombiniert werden",
+                URI.create(request.getRequestURL().toString())
+            );
+        }
+
+        final List<UUID> ids = new ArrayList<>(idParams.size());
+        for (final var idStr : idParams) {
+            try {
+                ids.add(UUID.fromString(idStr));
+            } catch (final IllegalArgumentException ex) {
+                throw new QueryParamInvalidException(
+                    "Ungueltige ID " + idStr,
+                    URI.create(request.getRequestURL().toString()),
+                    ex
+                );
+            }
+        }
+        return service.deleteByIds(ids);
+    }
+
     @ExceptionHandler
     ProblemDetail onConstraintViolations(
         final ConstraintViolationsException ex,
@@ -260,6 +343,15 @@ public class VereinWriteController {
 
 
 
+    @ExceptionHandler
+    ProblemDetail onBatchSizeInvalid(final BatchSizeInvalidException ex, final HttpServletRequest request) {
+        log.debug("onBatchSizeInvalid: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(BAD_REQUEST, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + ProblemType.BAD_REQUEST.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
     @ExceptionHandler
     ProblemDetail onVersionOutdated(
         final VersionOutdatedException ex,
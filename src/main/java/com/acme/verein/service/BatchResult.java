@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ergebnis für einen einzelnen Verein beim Neuanlegen mehrerer Vereine.
+ *
+ * @param index Position des Vereins in der Liste der neu anzulegenden Vereine
+ * @param id Die generierte ID oder null, falls der Verein nicht angelegt wurde
+ * @param fehler Die Fehlermeldungen oder null, falls der Verein angelegt wurde
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record BatchResult(int index, UUID id, List<String> fehler) {
+    static BatchResult ok(final int index, final UUID id) {
+        return new BatchResult(index, id, null);
+    }
+
+    static BatchResult fehler(final int index, final List<String> fehler) {
+        return new BatchResult(index, null, fehler);
+    }
+}
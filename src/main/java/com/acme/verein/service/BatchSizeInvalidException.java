@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import lombok.Getter;
+
+/**
+ * RuntimeException, falls beim Neuanlegen mehrerer Vereine mehr als VereinWriteService.MAX_BATCH_SIZE Vereine
+ * übergeben werden.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Getter
+public class BatchSizeInvalidException extends RuntimeException {
+    /**
+     * Anzahl der übergebenen Vereine.
+     */
+    private final int anzahl;
+
+    BatchSizeInvalidException(final int anzahl, final int maxAnzahl) {
+        super("Es koennen hoechstens " + maxAnzahl + " statt " + anzahl + " Vereine angelegt werden");
+        this.anzahl = anzahl;
+    }
+}
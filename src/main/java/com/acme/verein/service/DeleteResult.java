@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+/**
+ * Ergebnis beim Löschen mehrerer Vereine mit der Anzahl der gelöschten Vereine. Adresse und Umsatz sind Spalten
+ * von verein und werden mit dem Verein gelöscht.
+ *
+ * @param vereine Anzahl der gelöschten Vereine
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record DeleteResult(int vereine) {
+    /**
+     * Ergebnis, falls kein Verein gelöscht wurde.
+     */
+    static final DeleteResult LEER = new DeleteResult(0);
+
+    DeleteResult plus(final DeleteResult other) {
+        return new DeleteResult(vereine + other.vereine);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.SyncToken;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Die Änderungen seit einem SyncToken für die Delta-Synchronisation.
+ *
+ * @param vereine Die neu angelegten oder geänderten Vereine, sortiert nach (aktualisiert, id)
+ * @param geloescht Die IDs der gelöschten Vereine als Tombstones
+ * @param next SyncToken für die nächste Synchronisation
+ * @param hasMore true, falls sofort weitere Änderungen mit next gelesen werden können
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record Delta(List<Verein> vereine, List<UUID> geloescht, SyncToken next, boolean hasMore) {
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.VereinRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Bloom-Filter mit den kleingeschriebenen Emailadressen aller Vereine. Liefert der Filter false, dann gibt es die
+ * Emailadresse garantiert nicht und die Abfrage in der DB entfällt. Liefert er true, dann muss die DB abgefragt
+ * werden. Emailadressen gelöschter oder geänderter Vereine bleiben bis zum nächsten Neuaufbau im Filter, was nur zu
+ * weiteren falsch-positiven Ergebnissen führt. Neue Emailadressen werden erst nach dem Commit hinzugefügt, so dass
+ * der Filter keine Garantie für die Eindeutigkeit ist: diese stellt der Unique Constraint verein_email_key sicher.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Slf4j
+class EmailFilter {
+    /**
+     * Angestrebte Wahrscheinlichkeit für ein falsch-positives Ergebnis.
+     */
+    static final double FPP = 0.01;
+
+    /**
+     * Mindestanzahl an Emailadressen, für die der Filter dimensioniert wird.
+     */
+    static final long MIN_ANZAHL = 10_000;
+
+    private static final String METRIC_NAME = "verein.email.filter";
+    private static final String TAG_ERGEBNIS = "ergebnis";
+    private static final double LN2 = Math.log(2);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final VereinRepository repo;
+    private final Counter negativ;
+    private final Counter positiv;
+    private final Counter falschPositiv;
+
+    // waehrend des Neuaufbaus wird zusaetzlich in den neuen Filter geschrieben
+    private volatile Bits bits = Bits.of(MIN_ANZAHL);
+    private volatile Bits neu;
+    private volatile boolean geladen;
+
+    EmailFilter(final VereinRepository repo, final MeterRegistry registry) {
+        this.repo = repo;
+        negativ = registry.counter(METRIC_NAME, TAG_ERGEBNIS, "negativ");
+        positiv = registry.counter(METRIC_NAME, TAG_ERGEBNIS, "positiv");
+        falschPositiv = registry.counter(METRIC_NAME, TAG_ERGEBNIS, "falsch-positiv");
+        Gauge.builder(METRIC_NAME + ".fpp", this, EmailFilter::getFalschPositivRate)
+            .description("Anteil der falsch-positiven Ergebnisse an allen nicht vorhandenen Emailadressen")
+            .register(registry);
+        Gauge.builder(METRIC_NAME + ".fpp.erwartet", this, filter -> filter.bits.erwarteteFpp())
+            .description("Erwartete Rate falsch-positiver Ergebnisse aufgrund des Füllgrads")
+            .register(registry);
+    }
+
+    /**
+     * Den Filter aus der DB neu aufbauen, beim Start der Anwendung oder über den Actuator-Endpoint.
+     *
+     * @return Anzahl der eingelesenen Emailadressen
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    // nicht readOnly: von der primaeren DB lesen, weil ein verzoegertes Replikat zu falsch-negativen Ergebnissen fuehrt
+    @Transactional
+    public long rebuild() {
+        final var neuBits = Bits.of(Math.max(repo.count(), MIN_ANZAHL) * 2);
+        neu = neuBits;
+        var anzahl = 0L;
+        try (var emails = repo.streamEmails()) {
+            final var iterator = emails.iterator();
+            while (iterator.hasNext()) {
+                neuBits.add(iterator.next());
+                anzahl++;
+            }
+        }
+        bits = neuBits;
+        neu = null;
+        geladen = true;
+        log.info("rebuild: {} Emailadressen, {} Bits, {} Hashfunktionen", anzahl, neuBits.size(), neuBits.k());
+        return anzahl;
+    }
+
+    /**
+     * Eine Emailadresse eines neuen oder geänderten Vereins nach dem Commit hinzufügen, damit ein Rollback keine
+     * Einträge hinterlässt. Bis dahin kann eine parallele Transaktion die Emailadresse als nicht vorhanden ansehen.
+     * Ihr INSERT bzw. UPDATE verletzt dann den Unique Constraint verein_email_key, den VereinWriteService und
+     * VereinImportService als EmailExistsException bzw. als fehlerhaften Datensatz melden.
+     *
+     * @param email Die Emailadresse
+     */
+    void add(final String email) {
+        final var key = key(email);
+        // zuerst neu lesen: ist neu bereits null, dann ist bits schon der neue Filter
+        final var neuBits = neu;
+        if (neuBits != null) {
+            neuBits.add(key);
+        }
+        bits.add(key);
+    }
+
+    /**
+     * Abfrage, ob es die Emailadresse möglicherweise gibt. Solange der Filter nicht aufgebaut ist, wird immer true
+     * geliefert.
+     *
+     * @param email Die Emailadresse
+     * @return false, falls es die Emailadresse garantiert nicht gibt
+     */
+    boolean mightContain(final String email) {
+        if (!geladen) {
+            return true;
+        }
+        final var result = bits.mightContain(key(email));
+        (result ? positiv : negativ).increment();
+        return result;
+    }
+
+    /**
+     * Ein positives Ergebnis, das die DB widerlegt hat, für die Metriken zählen.
+     */
+    void falschPositiv() {
+        falschPositiv.increment();
+    }
+
+    /**
+     * Die beobachtete Rate falsch-positiver Ergebnisse.
+     *
+     * @return Anteil der falsch-positiven Ergebnisse an allen nicht vorhandenen Emailadressen
+     */
+    double getFalschPositivRate() {
+        final var nichtVorhanden = negativ.count() + falschPositiv.count();
+        return nichtVorhanden == 0 ? 0 : falschPositiv.count() / nichtVorhanden;
+    }
+
+    private static String key(final String email) {
+        return email.toLowerCase(ROOT);
+    }
+
+    /**
+     * Bit-Array mit k Hashfunktionen nach Kirsch und Mitzenmacher, d.h. h1 + i * h2.
+     *
+     * @param words Die Bits als long-Werte, die parallel gesetzt werden können
+     * @param size Anzahl der Bits
+     * @param k Anzahl der Hashfunktionen
+     */
+    private record Bits(AtomicLongArray words, long size, int k) {
+        static Bits of(final long anzahl) {
+            final var size = Math.max(Long.SIZE, (long) Math.ceil(-anzahl * Math.log(FPP) / (LN2 * LN2)));
+            final var k = Math.max(1, (int) Math.round((double) size / anzahl * LN2));
+            return new Bits(new AtomicLongArray((int) ((size + Long.SIZE - 1) / Long.SIZE)), size, k);
+        }
+
+        void add(final String key) {
+            final var h1 = hash(key);
+            final var h2 = mix(h1);
+            for (var i = 0; i < k; i++) {
+                final var bit = Math.floorMod(h1 + i * h2, size);
+                final var index = (int) (bit >>> 6);
+                final var mask = 1L << bit;
+                words.getAndAccumulate(index, mask, (word, m) -> word | m);
+            }
+        }
+
+        boolean mightContain(final String key) {
+            final var h1 = hash(key);
+            final var h2 = mix(h1);
+            for (var i = 0; i < k; i++) {
+                final var bit = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double erwarteteFpp() {
+            var gesetzt = 0L;
+            for (var i = 0; i < words.length(); i++) {
+                gesetzt += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) gesetzt / size, k);
+        }
+
+        // FNV-1a ueber die Zeichen, danach durch mix() gestreut
+        private static long hash(final String key) {
+            var h = FNV_OFFSET;
+            for (var i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= FNV_PRIME;
+            }
+            return mix(h);
+        }
+
+        // Finalizer von MurmurHash3
+        @SuppressWarnings("MagicNumber")
+        private static long mix(final long value) {
+            var h = value;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator-Endpoint für den Bloom-Filter der Emailadressen, z.B. GET bzw. POST /actuator/emailfilter.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Endpoint(id = "emailfilter")
+@RequiredArgsConstructor
+@Slf4j
+class EmailFilterEndpoint {
+    private final EmailFilter emailFilter;
+
+    /**
+     * Die beobachtete Rate falsch-positiver Ergebnisse abfragen.
+     *
+     * @return Map mit der Rate
+     */
+    @ReadOperation
+    public Map<String, Object> fpp() {
+        return Map.of("fpp", emailFilter.getFalschPositivRate());
+    }
+
+    /**
+     * Den Bloom-Filter aus der DB neu aufbauen, z.B. nach vielen gelöschten Vereinen.
+     *
+     * @return Map mit der Anzahl der eingelesenen Emailadressen
+     */
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        log.info("rebuild");
+        return Map.of("anzahl", emailFilter.rebuild());
+    }
+}
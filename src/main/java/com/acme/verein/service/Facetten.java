@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import java.util.List;
+
+/**
+ * Die Facetten für die Suche, jeweils absteigend sortiert nach der Anzahl.
+ *
+ * @param ort Anzahl der Vereine pro Ort
+ * @param plzRegion Anzahl der Vereine pro PLZ-Region, d.h. pro den ersten beiden Ziffern der PLZ
+ * @param gruendungsjahr Anzahl der Vereine pro Gründungsjahr
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record Facetten(List<Facette> ort, List<Facette> plzRegion, List<Facette> gruendungsjahr) {
+}
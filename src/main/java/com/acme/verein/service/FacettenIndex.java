@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.FacetteAnzahl;
+import com.acme.verein.repository.VereinRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-Memory-Zähler für die Facetten Ort, PLZ-Region und Gründungsjahr, so dass die Facetten ohne GROUP BY in der DB
+ * ermittelt werden. Die Zähler werden bei jedem Neuanlegen, Ändern und Löschen nach dem Commit aktualisiert und
+ * regelmäßig mit der DB abgeglichen, z.B. nach Änderungen direkt in der DB.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class FacettenIndex {
+    private static final int PLZ_REGION_LENGTH = 2;
+
+    private final VereinRepository repo;
+    private volatile Zaehler zaehler = new Zaehler();
+    private volatile boolean geladen;
+
+    /**
+     * Die Werte eines Vereins für die Facetten.
+     *
+     * @param ort Der Ort oder null
+     * @param plzRegion Die ersten beiden Ziffern der PLZ oder null
+     * @param gruendungsjahr Das Gründungsjahr oder null
+     */
+    record Werte(String ort, String plzRegion, String gruendungsjahr) {
+        /**
+         * Nur das Gründungsjahr ermitteln, z.B. bei einer Änderung, bei der sich die Adresse nicht ändert.
+         *
+         * @param gruendungsdatum Das Gründungsdatum oder null
+         * @return Die Werte für die Facetten ohne Ort und PLZ-Region
+         */
+        static Werte of(final LocalDate gruendungsdatum) {
+            return new Werte(null, null, gruendungsdatum == null ? null : String.valueOf(gruendungsdatum.getYear()));
+        }
+
+        /**
+         * Die Werte eines Vereins ermitteln. Die Adresse muss bereits geladen sein.
+         *
+         * @param verein Der Verein
+         * @return Die Werte für die Facetten
+         */
+        static Werte of(final Verein verein) {
+            final var adresse = verein.getAdresse();
+            return adresse == null
+                ? of(verein.getGruendungsdatum())
+                : of(adresse.getOrt(), adresse.getPlz(), verein.getGruendungsdatum());
+        }
+
+        /**
+         * Die Werte aus Ort, PLZ und Gründungsdatum ermitteln, z.B. für einen gelöschten Verein.
+         *
+         * @param ort Der Ort oder null
+         * @param plz Die PLZ oder null
+         * @param gruendungsdatum Das Gründungsdatum oder null
+         * @return Die Werte für die Facetten
+         */
+        static Werte of(final String ort, final String plz, final LocalDate gruendungsdatum) {
+            return new Werte(
+                ort,
+                plz == null || plz.length() < PLZ_REGION_LENGTH ? null : plz.substring(0, PLZ_REGION_LENGTH),
+                gruendungsdatum == null ? null : String.valueOf(gruendungsdatum.getYear())
+            );
+        }
+    }
+
+    /**
+     * Die Zähler beim Start der Anwendung aufbauen und danach regelmäßig mit der DB abgleichen. Änderungen zwischen
+     * dem Lesen aus der DB und dem Austausch der Zähler gehen dabei verloren und werden beim nächsten Abgleich
+     * korrigiert.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+        initialDelayString = "${app.facetten.abgleich-intervall:PT15M}",
+        fixedDelayString = "${app.facetten.abgleich-intervall:PT15M}"
+    )
+    // nicht readOnly: von der primaeren DB lesen, weil ein verzoegertes Replikat gerade gezaehlte Vereine zuruecksetzt
+    @Transactional
+    public void abgleichen() {
+        final var neu = new Zaehler();
+        putAll(neu.orte, repo.countByOrt());
+        putAll(neu.plzRegionen, repo.countByPlzRegion());
+        putAll(neu.gruendungsjahre, repo.countByGruendungsjahr());
+        final var alt = zaehler;
+        zaehler = neu;
+        if (geladen) {
+            final var abweichungen = abweichungen(alt.orte, neu.orte)
+                + abweichungen(alt.plzRegionen, neu.plzRegionen)
+                + abweichungen(alt.gruendungsjahre, neu.gruendungsjahre);
+            log.info("abgleichen: {} abweichende Zaehler korrigiert", abweichungen);
+        } else {
+            geladen = true;
+            log.info("abgleichen: {} Orte, {} PLZ-Regionen, {} Gruendungsjahre", neu.orte.size(),
+                neu.plzRegionen.size(), neu.gruendungsjahre.size());
+        }
+    }
+
+    /**
+     * Abfrage, ob die Zähler bereits aufgebaut sind.
+     *
+     * @return true, falls die Zähler aufgebaut sind
+     */
+    boolean isGeladen() {
+        return geladen;
+    }
+
+    /**
+     * Die Zähler für einen neuen Verein erhöhen.
+     *
+     * @param werte Die Werte des neuen Vereins
+     */
+    void add(final Werte werte) {
+        aendern(werte, 1);
+    }
+
+    /**
+     * Die Zähler für einen gelöschten Verein verringern.
+     *
+     * @param werte Die Werte des gelöschten Vereins
+     */
+    void remove(final Werte werte) {
+        aendern(werte, -1);
+    }
+
+    /**
+     * Die Zähler für einen geänderten Verein anpassen.
+     *
+     * @param alt Die bisherigen Werte
+     * @param neu Die neuen Werte
+     */
+    void update(final Werte alt, final Werte neu) {
+        if (!Objects.equals(alt, neu)) {
+            remove(alt);
+            add(neu);
+        }
+    }
+
+    /**
+     * Die Facetten ermitteln.
+     *
+     * @param limit Maximale Anzahl an Werten pro Facette
+     * @return Die Facetten mit den häufigsten Werten
+     */
+    Facetten getFacetten(final int limit) {
+        final var aktuell = zaehler;
+        return new Facetten(
+            top(aktuell.orte, limit),
+            top(aktuell.plzRegionen, limit),
+            top(aktuell.gruendungsjahre, limit)
+        );
+    }
+
+    private void aendern(final Werte werte, final long delta) {
+        final var aktuell = zaehler;
+        aendern(aktuell.orte, werte.ort(), delta);
+        aendern(aktuell.plzRegionen, werte.plzRegion(), delta);
+        aendern(aktuell.gruendungsjahre, werte.gruendungsjahr(), delta);
+    }
+
+    private static void aendern(final ConcurrentMap<String, Long> map, final String wert, final long delta) {
+        if (wert == null) {
+            return;
+        }
+        if (delta > 0) {
+            map.merge(wert, delta, Long::sum);
+        } else {
+            // ein Zaehler mit 0 wird entfernt
+            map.computeIfPresent(wert, (key, anzahl) -> anzahl + delta > 0 ? anzahl + delta : null);
+        }
+    }
+
+    private static void putAll(final Map<String, Long> map, final List<FacetteAnzahl> anzahlen) {
+        anzahlen.stream()
+            .filter(anzahl -> anzahl.getWert() != null)
+            .forEach(anzahl -> map.put(anzahl.getWert(), anzahl.getAnzahl()));
+    }
+
+    private static long abweichungen(final Map<String, Long> alt, final Map<String, Long> neu) {
+        final var geaendert = neu.entrySet()
+            .stream()
+            .filter(entry -> !entry.getValue().equals(alt.get(entry.getKey())))
+            .count();
+        final var entfernt = alt.keySet()
+            .stream()
+            .filter(wert -> !neu.containsKey(wert))
+            .count();
+        return geaendert + entfernt;
+    }
+
+    private static List<Facette> top(final Map<String, Long> map, final int limit) {
+        return map.entrySet()
+            .stream()
+            .map(entry -> new Facette(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparingLong(Facette::anzahl).reversed().thenComparing(Facette::wert))
+            .limit(limit)
+            .toList();
+    }
+
+    private static final class Zaehler {
+        private final ConcurrentMap<String, Long> orte = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Long> plzRegionen = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Long> gruendungsjahre = new ConcurrentHashMap<>();
+    }
+}
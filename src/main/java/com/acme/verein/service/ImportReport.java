@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import java.util.List;
+
+/**
+ * Bericht über einen Import von Vereinen.
+ *
+ * @param gelesen Anzahl der gelesenen Zeilen
+ * @param importiert Anzahl der importierten Vereine
+ * @param fehlerhaft Anzahl der fehlerhaften Zeilen
+ * @param fehler Die fehlerhaften Zeilen, höchstens VereinImportService.MAX_FEHLER
+ * @param dauerMillis Dauer des Imports in Millisekunden
+ * @param zeilenProSekunde Durchsatz in gelesenen Zeilen pro Sekunde
+ * @param abbruch Grund für den Abbruch des Imports oder null, falls alle Zeilen verarbeitet wurden
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record ImportReport(
+    long gelesen,
+    long importiert,
+    long fehlerhaft,
+    List<Fehler> fehler,
+    long dauerMillis,
+    long zeilenProSekunde,
+    String abbruch
+) {
+    /**
+     * Eine fehlerhafte Zeile mit den Fehlermeldungen.
+     *
+     * @param zeile Zeilennummer in der Eingabe
+     * @param meldungen Die Fehlermeldungen
+     */
+    public record Fehler(long zeile, List<String> meldungen) {
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Verein;
+
+/**
+ * Eine gelesene Zeile beim Import von Vereinen.
+ *
+ * @param nummer Zeilennummer in der Eingabe für den Fehlerbericht
+ * @param verein Der gelesene Verein oder null, falls die Zeile nicht gelesen werden konnte
+ * @param fehler Fehlermeldung beim Lesen der Zeile oder null
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record ImportZeile(long nummer, Verein verein, String fehler) {
+    /**
+     * Eine fehlerfrei gelesene Zeile.
+     *
+     * @param nummer Zeilennummer in der Eingabe
+     * @param verein Der gelesene Verein
+     * @return Die Zeile mit dem Verein
+     */
+    public static ImportZeile of(final long nummer, final Verein verein) {
+        return new ImportZeile(nummer, verein, null);
+    }
+
+    /**
+     * Eine Zeile, die nicht gelesen werden konnte, z.B. wegen eines ungültigen Datums.
+     *
+     * @param nummer Zeilennummer in der Eingabe
+     * @param fehler Die Fehlermeldung
+     * @return Die Zeile mit der Fehlermeldung
+     */
+    public static ImportZeile ofFehler(final long nummer, final String fehler) {
+        return new ImportZeile(nummer, null, fehler);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.Keyset;
+import com.acme.verein.repository.VereinUebersicht;
+
+import java.util.List;
+
+/**
+ * Eine Seite gefundener Vereine bei der Keyset-Pagination.
+ *
+ * @param content Die Vereine der Seite, sortiert nach (name, id)
+ * @param next Keyset für die nächste Seite oder null, falls es keine weiteren Vereine gibt
+ * @param previous Keyset für die vorherige Seite oder null, falls es die erste Seite ist
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public record KeysetPage(List<VereinUebersicht> content, Keyset next, Keyset previous) {
+}
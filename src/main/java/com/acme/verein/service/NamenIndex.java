@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.VereinRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Sortierter In-Memory-Index der Vereinsnamen für die Autovervollständigung ohne DB-Zugriff. Der Schlüssel besteht
+ * aus dem kleingeschriebenen Namen und dem Originalnamen, so dass alle Namen zu einem Präfix unabhängig von der
+ * Groß- und Kleinschreibung direkt hintereinander liegen und per binärer Suche in O(log n) gefunden werden.
+ * Der Wert ist die Anzahl der Vereine mit diesem Namen. Der Index wird bei jedem Neuanlegen, Ändern und Löschen
+ * nach dem Commit aktualisiert und regelmäßig mit der DB abgeglichen, z.B. nach Änderungen durch andere Instanzen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class NamenIndex {
+    private static final char SEPARATOR = '\u0000';
+
+    private final VereinRepository repo;
+    private volatile ConcurrentSkipListMap<String, Integer> namen = new ConcurrentSkipListMap<>();
+    private volatile boolean geladen;
+
+    /**
+     * Den Index beim Start der Anwendung aufbauen und danach regelmäßig mit der DB abgleichen. Änderungen zwischen
+     * dem Lesen aus der DB und dem Austausch des Index gehen dabei verloren und werden beim nächsten Abgleich
+     * korrigiert.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+        initialDelayString = "${app.namen.abgleich-intervall:PT15M}",
+        fixedDelayString = "${app.namen.abgleich-intervall:PT15M}"
+    )
+    // nicht readOnly: von der primaeren DB lesen, weil ein verzoegertes Replikat gerade angelegte Namen entfernt
+    @Transactional
+    public void abgleichen() {
+        final var neu = new ConcurrentSkipListMap<String, Integer>();
+        repo.countByName().forEach(nameAnzahl -> neu.put(key(nameAnzahl.getName()), (int) nameAnzahl.getAnzahl()));
+        namen = neu;
+        geladen = true;
+        log.info("abgleichen: {} verschiedene Namen", neu.size());
+    }
+
+    /**
+     * Abfrage, ob der Index bereits aufgebaut ist.
+     *
+     * @return true, falls der Index aufgebaut ist
+     */
+    boolean isGeladen() {
+        return geladen;
+    }
+
+    /**
+     * Einen Namen für einen neuen Verein hinzufügen.
+     *
+     * @param name Der Name
+     */
+    void add(final String name) {
+        namen.merge(key(name), 1, Integer::sum);
+    }
+
+    /**
+     * Einen Namen für einen geänderten oder gelöschten Verein entfernen. Der Name bleibt erhalten, solange es
+     * weitere Vereine mit diesem Namen gibt.
+     *
+     * @param name Der Name
+     */
+    void remove(final String name) {
+        namen.computeIfPresent(key(name), (key, anzahl) -> anzahl > 1 ? anzahl - 1 : null);
+    }
+
+    /**
+     * Die Namen zu einem Präfix ohne Berücksichtigung der Groß- und Kleinschreibung ermitteln.
+     *
+     * @param prefix Name-Präfix
+     * @param limit Maximale Anzahl an Namen
+     * @return Die passenden Namen, sortiert ohne Berücksichtigung der Groß- und Kleinschreibung
+     */
+    List<String> findByPrefix(final String prefix, final int limit) {
+        final var prefixKey = prefix.toLowerCase(ROOT);
+        final List<String> result = new ArrayList<>(limit);
+        for (final var key : namen.tailMap(prefixKey).keySet()) {
+            if (result.size() >= limit || !key.startsWith(prefixKey)) {
+                break;
+            }
+            result.add(key.substring(key.indexOf(SEPARATOR) + 1));
+        }
+        return result;
+    }
+
+    private static String key(final String name) {
+        return name.toLowerCase(ROOT) + SEPARATOR + name;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.SyncToken;
+import lombok.Getter;
+
+/**
+ * Exception, falls ein SyncToken oder eine Last-Event-ID älter ist als die Aufbewahrung der Tombstones bzw. der
+ * Events, so dass eine vollständige Synchronisation erforderlich ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Getter
+public class SyncTokenExpiredException extends RuntimeException {
+    /**
+     * Der abgelaufene SyncToken oder null bei einer abgelaufenen Last-Event-ID.
+     */
+    private final SyncToken token;
+
+    SyncTokenExpiredException(final SyncToken token) {
+        super("Das Token vom " + token.zeitpunkt() + " ist abgelaufen, eine vollstaendige Synchronisation ist " +
+            "erforderlich");
+        this.token = token;
+    }
+
+    SyncTokenExpiredException(final long position) {
+        super("Die Events nach der Position " + position + " sind nicht mehr vorhanden, eine vollstaendige " +
+            "Synchronisation ist erforderlich");
+        this.token = null;
+    }
+}
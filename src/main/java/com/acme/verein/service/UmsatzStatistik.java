@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Umsatz;
+import com.acme.verein.repository.UmsatzVerteilung;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Statistik der Umsätze einer Währung. Alle Beträge sind in der kleinsten Einheit als long, z.B. in Cent, und werden
+ * erst an der Schnittstelle mit betrag() in BigDecimal umgerechnet. Die Perzentile sind nach der Nearest-Rank-Methode
+ * einer der Umsätze, wie bei percentile_disc von PostgreSQL.
+ *
+ * @param waehrung Die Währung
+ * @param anzahl Anzahl der Vereine mit einem Umsatz in der Währung
+ * @param summe Summe der Umsätze
+ * @param durchschnitt Durchschnitt der Umsätze, kaufmännisch gerundet
+ * @param median Median, d.h. 50. Perzentil der Umsätze
+ * @param p90 90. Perzentil der Umsätze
+ * @param p99 99. Perzentil der Umsätze
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@SuppressWarnings("MagicNumber")
+public record UmsatzStatistik(
+    Currency waehrung,
+    int anzahl,
+    long summe,
+    long durchschnitt,
+    long median,
+    long p90,
+    long p99
+) {
+    /**
+     * Die Statistik aus den aufsteigend sortierten Umsätzen einer Währung berechnen, ohne pro Umsatz ein Objekt zu
+     * erzeugen.
+     *
+     * @param verteilung Die Umsätze einer Währung mit mindestens einem Betrag
+     * @return Die Statistik
+     * @throws ArithmeticException Falls die Summe den Wertebereich von long überschreitet
+     */
+    static UmsatzStatistik of(final UmsatzVerteilung verteilung) {
+        final var betraege = verteilung.betraege();
+        final var anzahl = betraege.length;
+        var summe = 0L;
+        for (final var betrag : betraege) {
+            summe = Math.addExact(summe, betrag);
+        }
+        // (2 * summe + anzahl) / (2 * anzahl) rundet bei .5 auf
+        final var durchschnitt = Math.floorDiv(Math.addExact(Math.multiplyExact(summe, 2), anzahl), 2L * anzahl);
+        return new UmsatzStatistik(
+            verteilung.waehrung(),
+            anzahl,
+            summe,
+            durchschnitt,
+            perzentil(betraege, 50),
+            perzentil(betraege, 90),
+            perzentil(betraege, 99)
+        );
+    }
+
+    /**
+     * Einen Betrag aus der kleinsten Einheit in BigDecimal umrechnen, z.B. 12345 in 123.45.
+     *
+     * @param kleinsteEinheit Der Betrag in der kleinsten Einheit
+     * @return Der Betrag mit Umsatz.NACHKOMMASTELLEN Nachkommastellen
+     */
+    public static BigDecimal betrag(final long kleinsteEinheit) {
+        return BigDecimal.valueOf(kleinsteEinheit, Umsatz.NACHKOMMASTELLEN);
+    }
+
+    // Nearest-Rank: der kleinste Betrag, bei dem mindestens p Prozent der Betraege kleiner oder gleich sind
+    private static long perzentil(final long[] sortiert, final int prozent) {
+        final var rang = (int) ((prozent * (long) sortiert.length + 99) / 100);
+        return sortiert[Math.max(rang, 1) - 1];
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.VereinEvent;
+import com.acme.verein.repository.VereinEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relay für die Outbox mit den Events zu Änderungen an Vereinen. Das Relay veröffentlicht die Events
+ * abschnittsweise, indem es ihnen fortlaufende Positionen gibt, und verteilt die veröffentlichten Events an die
+ * Abonnenten dieser Instanz, z.B. für Server-Sent Events. Ein Abonnent kann ab einer Position fortsetzen; die
+ * verpassten Events werden dann aus der DB nachgeliefert.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VereinEventRelay {
+    /**
+     * Maximale Anzahl an Events, die das Relay mit einer Anweisung veröffentlicht bzw. liest.
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * Maximale Anzahl an Events, die für einen langsamen Abonnenten gepuffert werden. Danach wird sein Stream beendet
+     * und er muss mit der letzten Position neu abonnieren.
+     */
+    public static final int MAX_PUFFER = 1_000;
+
+    // beliebiger, aber fester Schluessel fuer pg_try_advisory_xact_lock
+    private static final long LOCK_KEY = 0x7665_7265_696EL;
+
+    private final VereinEventRepository repo;
+    private final TransactionTemplate transactionTemplate;
+
+    // geschuetzt durch this
+    private final List<Sinks.Many<VereinEvent>> abonnenten = new ArrayList<>();
+    private long letztePosition = -1;
+
+    @Value("${app.outbox.aufbewahrung:P7D}")
+    private Duration aufbewahrung;
+
+    /**
+     * Noch nicht veröffentlichte Events veröffentlichen und neue Events an die Abonnenten verteilen. Von mehreren
+     * Instanzen veröffentlicht wegen der Advisory Lock nur eine gleichzeitig.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay-intervall:PT1S}")
+    public void relay() {
+        int anzahl;
+        do {
+            final var veroeffentlicht = transactionTemplate.execute(
+                status -> repo.sperren(LOCK_KEY) ? repo.veroeffentlichen(BATCH_SIZE) : 0
+            );
+            anzahl = veroeffentlicht == null ? 0 : veroeffentlicht;
+            log.trace("relay: veroeffentlicht={}", anzahl);
+        } while (anzahl == BATCH_SIZE);
+        verteilen();
+    }
+
+    private synchronized void verteilen() {
+        if (letztePosition < 0 || abonnenten.isEmpty()) {
+            // ohne Abonnenten genuegt die hoechste Position
+            letztePosition = repo.findMaxPosition();
+            return;
+        }
+
+        List<VereinEvent> events;
+        do {
+            events = repo.findVeroeffentlicht(letztePosition, Long.MAX_VALUE, BATCH_SIZE);
+            for (final var event : events) {
+                abonnenten.removeIf(abonnent -> {
+                    if (abonnent.tryEmitNext(event).isSuccess()) {
+                        return false;
+                    }
+                    // z.B. Puffer voll: der Abonnent setzt mit Last-Event-ID fort
+                    abonnent.tryEmitComplete();
+                    return true;
+                });
+                letztePosition = event.getPosition();
+            }
+        } while (events.size() == BATCH_SIZE);
+        log.trace("verteilen: letztePosition={}, abonnenten={}", letztePosition, abonnenten.size());
+    }
+
+    /**
+     * Die veröffentlichten Events abonnieren.
+     *
+     * @param nachPosition Die Position des zuletzt empfangenen Events, z.B. aus dem Header Last-Event-ID, oder null,
+     *      falls nur neue Events empfangen werden sollen
+     * @return Die Events in der Reihenfolge ihrer Position
+     * @throws SyncTokenExpiredException Falls Events nach der Position wegen der Aufbewahrung bereits gelöscht sind
+     *      oder die Position nie vergeben wurde
+     */
+    public Flux<VereinEvent> abonnieren(final Long nachPosition) {
+        log.debug("abonnieren: nachPosition={}", nachPosition);
+        if (nachPosition != null) {
+            // die Positionen sind fortlaufend und werden nie erneut vergeben: fehlt die naechste Position, dann wurden
+            // Events schon geloescht; eine Position nach der hoechsten stammt nicht aus dieser Outbox
+            final var minPosition = repo.findMinPosition();
+            final var maxPosition = repo.findMaxPosition();
+            if (nachPosition + 1 < minPosition || nachPosition > maxPosition) {
+                log.debug("abonnieren: minPosition={}, maxPosition={}", minPosition, maxPosition);
+                throw new SyncTokenExpiredException(nachPosition);
+            }
+        }
+        final Sinks.Many<VereinEvent> abonnent = Sinks.many()
+            .unicast()
+            .onBackpressureBuffer(Queues.<VereinEvent>get(MAX_PUFFER).get());
+        final long bis;
+        synchronized (this) {
+            if (letztePosition < 0) {
+                letztePosition = repo.findMaxPosition();
+            }
+            bis = letztePosition;
+            abonnenten.add(abonnent);
+        }
+
+        final var events = nachPosition == null
+            ? abonnent.asFlux()
+            : nachliefern(nachPosition, bis).concatWith(abonnent.asFlux());
+        return events.doFinally(signal -> abmelden(abonnent));
+    }
+
+    // die Events nach "nach" bis einschliesslich "bis" abschnittsweise aus der DB lesen
+    private Flux<VereinEvent> nachliefern(final long nach, final long bis) {
+        if (nach >= bis) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            final var events = repo.findVeroeffentlicht(nach, bis, BATCH_SIZE);
+            if (events.isEmpty()) {
+                return Flux.<VereinEvent>empty();
+            }
+            final var letzte = events.get(events.size() - 1).getPosition();
+            return Flux.fromIterable(events).concatWith(nachliefern(letzte, bis));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized void abmelden(final Sinks.Many<VereinEvent> abonnent) {
+        abonnenten.remove(abonnent);
+        log.trace("abmelden: abonnenten={}", abonnenten.size());
+    }
+
+    /**
+     * Veröffentlichte Events löschen, die älter als "app.outbox.aufbewahrung" sind. Ein Abonnent kann höchstens so
+     * weit zurück fortsetzen.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.bereinigung-intervall:PT1H}")
+    public void bereinigen() {
+        final var anzahl = transactionTemplate.execute(
+            status -> repo.deleteVeroeffentlichtVor(LocalDateTime.now().minus(aufbewahrung))
+        );
+        log.debug("bereinigen: anzahl={}", anzahl);
+    }
+}
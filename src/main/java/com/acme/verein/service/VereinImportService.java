@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.UuidV7Generator;
+import com.acme.verein.entity.Verein;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.acme.verein.entity.EventTyp.CREATE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Anwendungslogik für den Massenimport von Vereinen, z.B. bei einer Datenmigration. Die Vereine werden wie bei
+ * VereinWriteService mit Bean Validation geprüft, aber abschnittsweise mit COPY von PostgreSQL statt mit JPA
+ * gespeichert.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VereinImportService {
+    /**
+     * Anzahl der Vereine, die jeweils in einer eigenen Transaktion mit COPY gespeichert werden.
+     */
+    public static final int IMPORT_CHUNK_SIZE = 10_000;
+
+    /**
+     * Maximale Anzahl an fehlerhaften Zeilen, die im Bericht einzeln aufgeführt werden.
+     */
+    public static final int MAX_FEHLER = 1_000;
+
+    private static final String COPY_VEREIN = """
+        COPY verein (id, version, name, email, gruendungsdatum, homepage, plz, ort, betrag, waehrung, erzeugt,
+                     aktualisiert)
+        FROM STDIN
+        """;
+    private static final String COPY_EVENT = "COPY verein_event (verein_id, typ, version) FROM STDIN";
+    private static final String VORHANDENE_EMAILS = "SELECT email FROM verein WHERE email = ANY (?)";
+    private static final String VORHANDENE_IDS = "SELECT id FROM verein WHERE id = ANY (?)";
+    private static final String NULL = "\\N";
+    private static final long NANOS_PRO_SEKUNDE = SECONDS.toNanos(1);
+
+    private final DataSource dataSource;
+    private final Validator validator;
+    private final NamenIndex namenIndex;
+    private final FacettenIndex facettenIndex;
+    private final EmailFilter emailFilter;
+
+    /**
+     * Vereine importieren. Die Zeilen werden als Stream verarbeitet, so dass der Speicherbedarf nur von
+     * IMPORT_CHUNK_SIZE abhängt. Ungültige Zeilen werden im Bericht aufgeführt und übersprungen. Vorhandene IDs und
+     * Emailadressen werden vor COPY erkannt. Scheitert ein Abschnitt trotzdem an fehlerhaften Daten, dann wird er
+     * halbiert und erneut gespeichert, bis die fehlerhaften Zeilen isoliert sind. Bei anderen Fehlern, z.B. ohne
+     * Verbindung zur DB, wird der Import abgebrochen; die bereits gespeicherten Abschnitte bleiben erhalten.
+     *
+     * @param zeilen Die gelesenen Zeilen, z.B. aus CSV oder NDJSON
+     * @return Bericht mit den Anzahlen, den fehlerhaften Zeilen, dem Durchsatz und ggf. dem Grund für den Abbruch
+     */
+    public ImportReport importVereine(final Stream<ImportZeile> zeilen) {
+        log.debug("importVereine");
+        final var start = System.nanoTime();
+        final var stand = new Zwischenstand();
+        final List<ImportZeile> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        var gelesen = 0L;
+        String abbruch = null;
+
+        final var iterator = zeilen.iterator();
+        while (iterator.hasNext()) {
+            final var zeile = iterator.next();
+            gelesen++;
+            final var meldungen = validate(zeile);
+            if (meldungen.isEmpty()) {
+                chunk.add(zeile);
+            } else {
+                stand.addFehler(new ImportReport.Fehler(zeile.nummer(), meldungen));
+            }
+            if (chunk.size() == IMPORT_CHUNK_SIZE || !iterator.hasNext() && !chunk.isEmpty()) {
+                try {
+                    importChunk(chunk, stand);
+                } catch (final SQLException | IOException ex) {
+                    log.error("importVereine: Abbruch im Abschnitt ab Zeile {}", chunk.get(0).nummer(), ex);
+                    abbruch = "Der Import wurde im Abschnitt ab Zeile " + chunk.get(0).nummer() +
+                        " abgebrochen" + sqlState(ex);
+                    break;
+                }
+                chunk.clear();
+            }
+        }
+
+        final var dauer = System.nanoTime() - start;
+        final var zeilenProSekunde = dauer == 0 ? 0 : gelesen * NANOS_PRO_SEKUNDE / dauer;
+        final var report = new ImportReport(
+            gelesen,
+            stand.importiert,
+            stand.fehlerhaft,
+            stand.fehler,
+            NANOSECONDS.toMillis(dauer),
+            zeilenProSekunde,
+            abbruch
+        );
+        log.info("importVereine: gelesen={}, importiert={}, fehlerhaft={}, zeilen/s={}, abbruch={}",
+            gelesen, report.importiert(), report.fehlerhaft(), zeilenProSekunde, abbruch);
+        return report;
+    }
+
+    private List<String> validate(final ImportZeile zeile) {
+        if (zeile.fehler() != null) {
+            return List.of(zeile.fehler());
+        }
+        final var verein = zeile.verein();
+        final var meldungen = new ArrayList<>(VereinWriteService.toMessages(validator.validate(verein)));
+        final var umsatz = verein.getUmsatz();
+        if (umsatz != null && (umsatz.getBetrag() == null || umsatz.getWaehrung() == null)) {
+            meldungen.add("umsatz: Betrag und Waehrung sind erforderlich");
+        }
+        return meldungen;
+    }
+
+    // Fehler in den Daten einer Zeile, z.B. ein ungueltiger Wert (Klasse 22) oder ein verletzter Constraint (23)
+    private static boolean isDatenfehler(final Exception ex) {
+        if (ex instanceof final SQLException sqlEx && sqlEx.getSQLState() != null) {
+            final var sqlState = sqlEx.getSQLState();
+            return sqlState.startsWith("22") || sqlState.startsWith("23");
+        }
+        return false;
+    }
+
+    // die Meldung der DB enthaelt ggf. Werte anderer Zeilen und geht nicht in den Bericht
+    private static String sqlState(final Exception ex) {
+        return ex instanceof final SQLException sqlEx && sqlEx.getSQLState() != null
+            ? " (SQLState " + sqlEx.getSQLState() + ')'
+            : "";
+    }
+
+    private void importChunk(final List<ImportZeile> chunk, final Zwischenstand stand)
+        throws SQLException, IOException {
+        log.trace("importChunk: ab Zeile {}, anzahl={}", chunk.get(0).nummer(), chunk.size());
+        final List<ImportReport.Fehler> fehler = new ArrayList<>();
+        final List<Verein> neu;
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                neu = copy(connection, chunk, fehler);
+                connection.commit();
+            } catch (final SQLException | IOException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (final SQLException | IOException ex) {
+            if (!isDatenfehler(ex)) {
+                // z.B. keine Verbindung: Halbieren wuerde nur viele weitere Verbindungsversuche bewirken
+                throw ex;
+            }
+            log.warn("importChunk: Abschnitt ab Zeile {} fehlgeschlagen: {}", chunk.get(0).nummer(), ex.getMessage());
+            if (chunk.size() > 1) {
+                // binaere Suche nach den fehlerhaften Zeilen: die fehlerfreien Haelften werden gespeichert
+                final var mitte = chunk.size() / 2;
+                importChunk(chunk.subList(0, mitte), stand);
+                importChunk(chunk.subList(mitte, chunk.size()), stand);
+                return;
+            }
+            stand.addFehler(new ImportReport.Fehler(
+                chunk.get(0).nummer(),
+                List.of("Die Zeile konnte nicht gespeichert werden" + sqlState(ex))
+            ));
+            return;
+        }
+        // erst nach dem Commit, damit ein zurueckgerollter Abschnitt keine Eintraege hinterlaesst
+        neu.forEach(verein -> {
+            emailFilter.add(verein.getEmail());
+            namenIndex.add(verein.getName());
+            facettenIndex.add(FacettenIndex.Werte.of(verein));
+        });
+        stand.importiert += neu.size();
+        fehler.forEach(stand::addFehler);
+    }
+
+    private List<Verein> copy(
+        final Connection connection,
+        final List<ImportZeile> chunk,
+        final List<ImportReport.Fehler> fehler
+    ) throws SQLException, IOException {
+        final var vorhanden = findVorhandeneEmails(connection, chunk);
+        final var vorhandeneIds = findVorhandeneIds(connection, chunk);
+        final var emails = new HashSet<String>();
+        final var ids = new HashSet<UUID>();
+        final var vereine = new StringBuilder();
+        final List<Verein> neu = new ArrayList<>(chunk.size());
+        final var jetzt = LocalDateTime.now();
+
+        for (final var zeile : chunk) {
+            final var verein = zeile.verein();
+            final var email = verein.getEmail();
+            final var id = verein.getId();
+            if (id != null && (vorhandeneIds.contains(id) || !ids.add(id))) {
+                fehler.add(new ImportReport.Fehler(zeile.nummer(), List.of("Die ID " + id + " existiert bereits")));
+                continue;
+            }
+            if (vorhanden.contains(email) || !emails.add(email)) {
+                fehler.add(new ImportReport.Fehler(
+                    zeile.nummer(),
+                    List.of(new EmailExistsException(email).getMessage())
+                ));
+                continue;
+            }
+            appendVerein(verein, jetzt, vereine);
+            neu.add(verein);
+        }
+
+        final var copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        copyManager.copyIn(COPY_VEREIN, new StringReader(vereine.toString()));
+        // Events fuer die Outbox in derselben Transaktion
+        final var events = new StringBuilder();
+        neu.forEach(verein -> appendRow(events, verein.getId(), CREATE, verein.getVersion()));
+        copyManager.copyIn(COPY_EVENT, new StringReader(events.toString()));
+        return neu;
+    }
+
+    private Set<String> findVorhandeneEmails(final Connection connection, final List<ImportZeile> chunk)
+        throws SQLException {
+        final var emails = chunk.stream()
+            .map(zeile -> zeile.verein().getEmail())
+            .filter(emailFilter::mightContain)
+            .toArray();
+        if (emails.length == 0) {
+            return Set.of();
+        }
+        try (var statement = connection.prepareStatement(VORHANDENE_EMAILS)) {
+            statement.setArray(1, connection.createArrayOf("varchar", emails));
+            try (var resultSet = statement.executeQuery()) {
+                final var vorhanden = new HashSet<String>();
+                while (resultSet.next()) {
+                    vorhanden.add(resultSet.getString(1));
+                }
+                return vorhanden;
+            }
+        }
+    }
+
+    private static Set<UUID> findVorhandeneIds(final Connection connection, final List<ImportZeile> chunk)
+        throws SQLException {
+        final var ids = chunk.stream()
+            .map(zeile -> zeile.verein().getId())
+            .filter(Objects::nonNull)
+            .toArray();
+        if (ids.length == 0) {
+            return Set.of();
+        }
+        try (var statement = connection.prepareStatement(VORHANDENE_IDS)) {
+            statement.setArray(1, connection.createArrayOf("uuid", ids));
+            try (var resultSet = statement.executeQuery()) {
+                final var vorhanden = new HashSet<UUID>();
+                while (resultSet.next()) {
+                    vorhanden.add(resultSet.getObject(1, UUID.class));
+                }
+                return vorhanden;
+            }
+        }
+    }
+
+    private static void appendVerein(
+        final Verein verein,
+        final LocalDateTime jetzt,
+        final StringBuilder vereine
+    ) {
+        if (verein.getId() == null) {
+            // die ID wird z.B. fuer das Event in der Outbox benoetigt
+            verein.setId(UuidV7Generator.next());
+        }
+        final var id = verein.getId();
+        final var erzeugt = verein.getErzeugt() == null ? jetzt : verein.getErzeugt();
+        // aktualisiert ist immer der Zeitpunkt des Imports, sonst findet die Delta-Synchronisation importierte
+        // Vereine mit einem Zeitstempel vor dem SyncToken nicht
+        verein.setAktualisiert(jetzt);
+        final var adresse = verein.getAdresse();
+        // Adresse und Umsatz sind Spalten von verein, d.h. ein Verein ist genau eine Zeile bei COPY
+        final var umsatz = verein.getUmsatz();
+        appendRow(vereine, id, verein.getVersion(), verein.getName(), verein.getEmail(), verein.getGruendungsdatum(),
+            verein.getHomepage(), adresse.getPlz(), adresse.getOrt(), umsatz == null ? null : umsatz.getBetrag(),
+            umsatz == null ? null : umsatz.getWaehrung(), erzeugt, jetzt);
+    }
+
+    // Textformat von COPY: Tabulator als Trennzeichen, \N fuer NULL und Backslash als Escape-Zeichen
+    private static void appendRow(final StringBuilder sb, final Object... werte) {
+        for (var i = 0; i < werte.length; i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            final var wert = werte[i];
+            if (wert == null) {
+                sb.append(NULL);
+                continue;
+            }
+            final var str = wert instanceof BigDecimal betrag ? betrag.toPlainString() : wert.toString();
+            for (var j = 0; j < str.length(); j++) {
+                final var c = str.charAt(j);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '\t' -> sb.append("\\t");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    default -> sb.append(c);
+                }
+            }
+        }
+        sb.append('\n');
+    }
+
+    // Anzahlen und fehlerhafte Zeilen eines Imports, auch ueber die Rekursion beim Halbieren eines Abschnitts hinweg
+    private static final class Zwischenstand {
+        private final List<ImportReport.Fehler> fehler = new ArrayList<>();
+        private long importiert;
+        private long fehlerhaft;
+
+        void addFehler(final ImportReport.Fehler neu) {
+            fehlerhaft++;
+            if (fehler.size() < MAX_FEHLER) {
+                fehler.add(neu);
+            }
+        }
+    }
+}
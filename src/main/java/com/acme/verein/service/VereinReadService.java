@@ -17,18 +17,39 @@
 package com.acme.verein.service;
 
 import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.FacetteAnzahl;
+import com.acme.verein.repository.Keyset;
+import com.acme.verein.repository.Sortierung;
+import com.acme.verein.repository.SyncToken;
+import com.acme.verein.repository.VereinEventRepository;
 import com.acme.verein.repository.VereinRepository;
+import com.acme.verein.repository.VereinUebersicht;
 import com.acme.verein.repository.SpecBuilder;
 import com.acme.verein.security.Rolle;
+import jakarta.persistence.EntityManager;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.acme.verein.repository.KeysetExecutor.SUCHKRITERIEN;
+import static org.springframework.transaction.annotation.Propagation.SUPPORTS;
 
 /**
  * Anwendungslogik für Vereine.
@@ -44,16 +65,63 @@ import java.util.*;
 @RequiredArgsConstructor
 @Slf4j
 public class VereinReadService {
+    /**
+     * Maximale Anzahl an Vereinen pro Seite bei der Keyset-Pagination.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Default-Anzahl an Vereinen pro Seite bei der Keyset-Pagination.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Suchkriterium für die Sortierung, z.B. "gruendungsdatum,desc". Ohne Sortierung wird bei der Keyset-Pagination
+     * nach dem Namen sortiert.
+     */
+    public static final String SORT = "sort";
+
+    /**
+     * Name des Cache für Vereine mit Adresse und Umsatz, wobei die ID der Schlüssel ist.
+     */
+    public static final String VEREIN_CACHE = "verein";
+
+    /**
+     * Anzahl exportierter Vereine, nach denen der Persistence Context geleert wird.
+     */
+    static final int EXPORT_CLEAR_INTERVAL = 500;
+
+    /**
+     * Maximale Anzahl an Vereinen pro Antwort bei der Delta-Synchronisation.
+     */
+    public static final int MAX_SYNC_SIZE = 1_000;
+
     private final VereinRepository repo;
     private final SpecBuilder specBuilder;
+    private final EntityManager em;
+    private final NamenIndex namenIndex;
+    private final FacettenIndex facettenIndex;
+    private final VereinEventRepository eventRepo;
+
+    // so lange bleiben die Tombstones in der Outbox
+    @Value("${app.outbox.aufbewahrung:P7D}")
+    private Duration aufbewahrung;
+
+    @Value("${app.sync.ueberlappung:PT30S}")
+    private Duration ueberlappung;
 
     /**
-     * Einen Vereine anhand seiner ID suchen.
+     * Einen Vereine anhand seiner ID suchen. Der Verein wird mit Adresse und Umsatz im Cache abgelegt und bei
+     * Änderungen oder beim Löschen durch VereinWriteService aus dem Cache entfernt.
      *
      * @param id Die Id des gesuchten Vereine
-     * @return Der gefundene Verein
+     * @return Der gefundene Verein, der nicht verändert werden darf, weil er ggf. aus dem Cache stammt
      * @throws NotFoundException Falls kein Verein gefunden wurde
      */
+    @Cacheable(VEREIN_CACHE)
+    // nicht readOnly: bei einem Cache-Miss von der primaeren DB lesen, damit kein veralteter Stand eines Replikats
+    // bis zum Ablauf der TTL im Cache liegt
+    @Transactional
     public @NonNull Verein findById(final UUID id) {
         log.debug("findById: id={}", id);
         final var vereinOpt = repo.findById(id);
@@ -65,24 +133,33 @@ public class VereinReadService {
     }
 
     /**
-     * Vereine anhand von Suchkriterien als Collection suchen.
+     * Vereine anhand von Suchkriterien als Collection suchen, z.B. für GraphQL. Es werden höchstens MAX_PAGE_SIZE
+     * Vereine gelesen, damit eine Suche ohne einschränkende Suchkriterien weder den Heap füllt noch in ein Timeout
+     * läuft; für mehr Vereine gibt es die Keyset-Pagination.
      *
-     * @param suchkriterien Die Suchkriterien
+     * @param suchkriterien Die Suchkriterien einschließlich der optionalen Sortierung
      * @return Die gefundenen Vereine oder eine leere Liste
      * @throws NotFoundException Falls keine Vereine gefunden wurden
+     * @throws SuchkriteriumInvalidException Falls ein Suchkriterium oder die Sortierung ungültig ist
      */
     @SuppressWarnings({"ReturnCount", "NestedIfDepth", "CyclomaticComplexity"})
     public @NonNull Collection<Verein> find(@NonNull final Map<String, List<String>> suchkriterien) {
         log.debug("find: suchkriterien={}", suchkriterien);
+        final Map<String, List<String>> kriterien = new HashMap<>(suchkriterien);
+        final var sortierung = getSortierung(kriterien.remove(SORT));
+        pruefe(kriterien);
 
-        if (suchkriterien.isEmpty()) {
-            return repo.findAll();
+        final var seite = sortierung == null
+            ? PageRequest.of(0, MAX_PAGE_SIZE)
+            : PageRequest.of(0, MAX_PAGE_SIZE, sortierung.toSort());
+        if (kriterien.isEmpty()) {
+            return repo.findAllBy(seite);
         }
 
-        if (suchkriterien.size() == 1) {
-            final var namen = suchkriterien.get("name");
+        if (kriterien.size() == 1 && sortierung == null) {
+            final var namen = kriterien.get("name");
             if (namen != null && namen.size() == 1) {
-                final var vereine = repo.findByName(namen.get(0));
+                final var vereine = repo.findByName(namen.get(0), seite);
                 if (vereine.isEmpty()) {
                     throw new NotFoundException(suchkriterien);
                 }
@@ -90,7 +167,7 @@ public class VereinReadService {
                 return vereine;
             }
 
-            final var emails = suchkriterien.get("email");
+            final var emails = kriterien.get("email");
             if (emails != null && emails.size() == 1) {
                 final var verein = repo.findByEmail(emails.get(0));
                 if (verein.isEmpty()) {
@@ -103,9 +180,10 @@ public class VereinReadService {
         }
 
         final var spec = specBuilder
-            .build(suchkriterien)
+            .build(kriterien)
             .orElseThrow(() -> new NotFoundException(suchkriterien));
-        final var vereine = repo.findAll(spec);
+        // COUNT-Query nur, falls die Seite voll ist
+        final var vereine = repo.findAll(spec, seite).getContent();
         if (vereine.isEmpty()) {
             throw new NotFoundException(suchkriterien);
         }
@@ -114,19 +192,290 @@ public class VereinReadService {
     }
 
     /**
-     * Abfrage, welche Namen es zu einem Präfix gibt.
+     * Eine Seite von Vereinen anhand von Suchkriterien mit Keyset-Pagination suchen. Die Vereine sind nach (name, id)
+     * oder nach der angegebenen Sortierung und der ID sortiert, so dass die Latenz unabhängig von der Position der
+     * Seite ist. Die Vereine werden als Projektion
+     * gelesen, d.h. ohne Entities im Persistence Context, und nur mit den Spalten der angeforderten Felder. Die Query
+     * wird pro Kombination der Suchkriterien nur einmal erstellt.
+     *
+     * @param suchkriterien Die Suchkriterien einschließlich der optionalen Sortierung, aber ohne die Pagination
+     * @param after Keyset, nach dem die Seite beginnt, oder null
+     * @param before Keyset, vor dem die Seite endet, oder null
+     * @param size Gewünschte Anzahl der Vereine pro Seite, höchstens MAX_PAGE_SIZE
+     * @param felder Die angeforderten Felder aus VereinUebersicht.FELDER
+     * @return Die Seite mit den gefundenen Vereinen und den Keysets für die Nachbarseiten
+     * @throws NotFoundException Falls keine Vereine gefunden wurden
+     * @throws SuchkriteriumInvalidException Falls ein Suchkriterium oder die Sortierung ungültig ist
+     */
+    public @NonNull KeysetPage find(
+        @NonNull final Map<String, List<String>> suchkriterien,
+        final Keyset after,
+        final Keyset before,
+        final int size,
+        @NonNull final Set<String> felder
+    ) {
+        log.debug(
+            "find: suchkriterien={}, after={}, before={}, size={}, felder={}",
+            suchkriterien, after, before, size, felder
+        );
+        final var limit = Math.min(size, MAX_PAGE_SIZE);
+
+        final Map<String, List<String>> kriterien = new HashMap<>(suchkriterien);
+        final var sortierung = Objects.requireNonNullElse(getSortierung(kriterien.remove(SORT)), Sortierung.NAME);
+        pruefe(kriterien);
+
+        // 1 Datensatz mehr lesen, um festzustellen, ob es eine weitere Seite gibt
+        final var backwards = before != null;
+        final var vereine = new ArrayList<>(
+            repo.findUebersicht(kriterien, sortierung, after, before, limit + 1, felder)
+        );
+        final var hasMore = vereine.size() > limit;
+        if (hasMore) {
+            vereine.remove(limit);
+        }
+        if (vereine.isEmpty()) {
+            throw new NotFoundException(suchkriterien);
+        }
+        if (backwards) {
+            Collections.reverse(vereine);
+        }
+
+        final var first = Keyset.of(vereine.get(0), sortierung);
+        final var last = Keyset.of(vereine.get(vereine.size() - 1), sortierung);
+        final var page = backwards
+            ? new KeysetPage(vereine, last, hasMore ? first : null)
+            : new KeysetPage(vereine, hasMore ? last : null, after == null ? null : first);
+        log.debug("find: {}", page);
+        return page;
+    }
+
+    /**
+     * Die Änderungen seit einem SyncToken für die Delta-Synchronisation ermitteln, d.h. die geänderten Vereine und
+     * die IDs der gelöschten Vereine. Der SyncToken für die nächste Synchronisation liegt um
+     * "app.sync.ueberlappung" vor dem aktuellen Zeitpunkt, damit Änderungen aus noch laufenden Transaktionen oder
+     * aus einem verzögerten Replikat nicht verloren gehen. Änderungen in diesem Zeitraum werden ggf. erneut geliefert.
+     *
+     * @param seit Der SyncToken der letzten Synchronisation oder null für eine vollständige Synchronisation
+     * @param size Maximale Anzahl der Vereine, höchstens MAX_SYNC_SIZE
+     * @return Die Änderungen mit dem SyncToken für die nächste Synchronisation
+     * @throws SyncTokenExpiredException Falls die Tombstones für den SyncToken nicht mehr vorhanden sind
+     */
+    public @NonNull Delta findAenderungen(final SyncToken seit, final int size) {
+        log.debug("findAenderungen: seit={}, size={}", seit, size);
+        final var jetzt = LocalDateTime.now();
+        if (seit != null && seit.zeitpunkt().isBefore(jetzt.minus(aufbewahrung))) {
+            throw new SyncTokenExpiredException(seit);
+        }
+
+        final var limit = Math.min(size, MAX_SYNC_SIZE);
+        final var von = seit == null ? SyncToken.ANFANG : seit;
+        // 1 Datensatz mehr lesen, um festzustellen, ob es weitere Aenderungen gibt
+        final var vereine = new ArrayList<>(
+            repo.findAktualisiertNach(von.zeitpunkt(), von.id(), PageRequest.of(0, limit + 1))
+        );
+        final var hasMore = vereine.size() > limit;
+        if (hasMore) {
+            vereine.remove(limit);
+        }
+
+        final SyncToken next;
+        if (hasMore) {
+            final var letzter = vereine.get(vereine.size() - 1);
+            next = new SyncToken(letzter.getAktualisiert(), letzter.getId());
+        } else {
+            final var grenze = jetzt.minus(ueberlappung);
+            next = grenze.isAfter(von.zeitpunkt()) ? new SyncToken(grenze, SyncToken.NIL) : von;
+        }
+        // bei einer vollstaendigen Synchronisation gibt es keine Tombstones
+        final List<UUID> geloescht = seit == null
+            ? List.of()
+            : eventRepo.findGeloescht(von.zeitpunkt(), hasMore ? next.zeitpunkt() : jetzt);
+
+        final var delta = new Delta(vereine, geloescht, next, hasMore);
+        log.debug("findAenderungen: vereine={}, geloescht={}, next={}", vereine.size(), geloescht.size(), next);
+        return delta;
+    }
+
+    /**
+     * Vereine mit einem ähnlichen Namen suchen, absteigend sortiert nach der Ähnlichkeit.
+     *
+     * @param name Der ungefähre Name, auch mit Tippfehlern
+     * @param size Maximale Anzahl der gefundenen Vereine, höchstens MAX_PAGE_SIZE
+     * @return Die gefundenen Vereine als Projektion
+     * @throws NotFoundException Falls keine Vereine gefunden wurden
+     */
+    public @NonNull List<VereinUebersicht> findByNameAehnlich(@NonNull final String name, final int size) {
+        log.debug("findByNameAehnlich: name={}, size={}", name, size);
+        final var vereine = repo.findByNameAehnlich(name, PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE)));
+        if (vereine.isEmpty()) {
+            throw new NotFoundException(Map.of("nameAehnlich", List.of(name)));
+        }
+        log.debug("findByNameAehnlich: {}", vereine);
+        return vereine;
+    }
+
+    /**
+     * Alle Vereine mit Adresse und Umsatz exportieren. Die Vereine werden als Stream gelesen und der Persistence
+     * Context wird regelmäßig geleert, so dass der Speicherbedarf unabhängig von der Anzahl der Vereine ist.
+     *
+     * @param consumer Callback, z.B. zum Schreiben in den Response, der für jeden gelesenen Verein aufgerufen wird
+     * @return Die Anzahl der exportierten Vereine
+     */
+    public long export(@NonNull final Consumer<Verein> consumer) {
+        log.debug("export");
+        var anzahl = 0L;
+        try (var vereine = repo.streamAll()) {
+            final var iterator = vereine.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                anzahl++;
+                if (anzahl % EXPORT_CLEAR_INTERVAL == 0) {
+                    // bereits geschriebene Vereine fuer den GC freigeben
+                    em.clear();
+                }
+            }
+        }
+        log.debug("export: anzahl={}", anzahl);
+        return anzahl;
+    }
+
+    /**
+     * Abfrage, welche Namen es zu einem Präfix gibt. Die Namen werden aus dem In-Memory-Index gelesen und nur
+     * solange der Index noch nicht aufgebaut ist, aus der DB.
      *
      * @param prefix Name-Präfix.
+     * @param limit Maximale Anzahl der Namen.
      * @return Die passenden Namen.
      * @throws NotFoundException Falls keine Namen gefunden wurden.
      */
-    public @NonNull Collection<String> findNamenByPrefix(final String prefix) {
-        log.debug("findNamenByPrefix: {}", prefix);
-        final var namen = repo.findNamenByPrefix(prefix);
+    // ohne Transaktion, damit fuer den In-Memory-Index keine DB-Verbindung belegt wird
+    @Transactional(propagation = SUPPORTS, readOnly = true)
+    public @NonNull List<String> findNamenByPrefix(final String prefix, final int limit) {
+        log.debug("findNamenByPrefix: prefix={}, limit={}", prefix, limit);
+        final var namen = namenIndex.isGeladen()
+            ? namenIndex.findByPrefix(prefix, limit)
+            : repo.findNamenByPrefix(prefix, PageRequest.of(0, limit));
         if (namen.isEmpty()) {
             throw new NotFoundException();
         }
         log.debug("findNamenByPrefix: {}", namen);
         return namen;
     }
+
+    /**
+     * Die Facetten Ort, PLZ-Region und Gründungsjahr mit der jeweiligen Anzahl an Vereinen ermitteln. Die Facetten
+     * werden aus den In-Memory-Zählern gelesen und nur solange die Zähler noch nicht aufgebaut sind, aus der DB.
+     *
+     * @param limit Maximale Anzahl an Werten pro Facette
+     * @return Die Facetten mit den häufigsten Werten
+     */
+    // ohne Transaktion, damit fuer die In-Memory-Zaehler keine DB-Verbindung belegt wird
+    @Transactional(propagation = SUPPORTS, readOnly = true)
+    public @NonNull Facetten getFacetten(final int limit) {
+        log.debug("getFacetten: limit={}", limit);
+        if (facettenIndex.isGeladen()) {
+            return facettenIndex.getFacetten(limit);
+        }
+        return new Facetten(
+            top(repo.countByOrt(), limit),
+            top(repo.countByPlzRegion(), limit),
+            top(repo.countByGruendungsjahr(), limit)
+        );
+    }
+
+    /**
+     * Daten nur dann lesen, falls sich der Stand aller Vereine geändert hat, z.B. für bedingte GET-Requests auf
+     * Listen. Der Stand ändert sich bei jedem Neuanlegen, Ändern und Löschen eines Vereins, auch durch andere
+     * Instanzen, und wird ohne Zugriff auf die Tabelle verein aus der Outbox gelesen. Stand und Daten werden in
+     * derselben Transaktion gelesen, d.h. bei Read Replicas von demselben Server, so dass ein Stand nie zu Daten
+     * eines anderen, veralteten Replikats gehört.
+     *
+     * @param unveraendert Prädikat, ob der Client bereits die Daten zum Stand hat
+     * @param lesen Das Lesen der Daten, das an dieser Transaktion teilnimmt
+     * @param <T> Der Typ der Daten
+     * @return Die gelesenen Daten oder ein leeres Optional, falls sie unverändert sind
+     */
+    public <T> Optional<T> findFallsGeaendert(
+        @NonNull final Predicate<String> unveraendert,
+        @NonNull final Supplier<T> lesen
+    ) {
+        // zuerst der Stand: eine danach committete Aenderung fuehrt hoechstens zu einem veralteten Stand, d.h. spaeter
+        // zu einer unnoetigen Antwort mit Statuscode 200 statt 304
+        final var stand = eventRepo.findStand();
+        log.trace("findFallsGeaendert: stand={}", stand);
+        return unveraendert.test(stand) ? Optional.empty() : Optional.of(lesen.get());
+    }
+
+    /**
+     * Statistik der Umsätze pro Währung für alle Vereine oder die Vereine zu Suchkriterien, z.B. für ein Dashboard.
+     * Die Beträge werden in der DB in die kleinste Einheit umgerechnet und als long aggregiert, d.h. ohne Entities und
+     * ohne BigDecimal pro Verein.
+     *
+     * @param suchkriterien Die Suchkriterien wie bei der Suche. Eine Sortierung wird ignoriert.
+     * @return Die Statistik pro Währung, sortiert nach dem Währungscode, oder eine leere Liste
+     * @throws SuchkriteriumInvalidException Falls ein Suchkriterium ungültig ist
+     */
+    public @NonNull List<UmsatzStatistik> getUmsatzStatistik(@NonNull final Map<String, List<String>> suchkriterien) {
+        log.debug("getUmsatzStatistik: suchkriterien={}", suchkriterien);
+        final Map<String, List<String>> kriterien = new HashMap<>(suchkriterien);
+        kriterien.remove(SORT);
+        pruefe(kriterien);
+        final var statistik = repo.findUmsatzVerteilung(kriterien)
+            .stream()
+            .map(UmsatzStatistik::of)
+            .toList();
+        log.debug("getUmsatzStatistik: {}", statistik);
+        return statistik;
+    }
+
+    private static List<Facette> top(final Collection<FacetteAnzahl> anzahlen, final int limit) {
+        return anzahlen.stream()
+            .filter(anzahl -> anzahl.getWert() != null)
+            .map(anzahl -> new Facette(anzahl.getWert(), anzahl.getAnzahl()))
+            .sorted(Comparator.comparingLong(Facette::anzahl).reversed().thenComparing(Facette::wert))
+            .limit(limit)
+            .toList();
+    }
+
+    private static Sortierung getSortierung(final List<String> sortParam) {
+        if (sortParam == null || sortParam.isEmpty()) {
+            return null;
+        }
+        if (sortParam.size() != 1) {
+            throw new SuchkriteriumInvalidException(SORT, "Nur eine Sortierung ist zulaessig: " + sortParam);
+        }
+        final var sort = sortParam.get(0);
+        return Sortierung.of(sort).orElseThrow(() -> new SuchkriteriumInvalidException(
+            SORT,
+            "Ungueltige Sortierung " + sort + ", zulaessig sind name und gruendungsdatum, ggf. mit ,desc"
+        ));
+    }
+
+    // unbekannte oder syntaktisch falsche Suchkriterien fuehren zu einer Exception statt zu einem leeren Resultat
+    static void pruefe(final Map<String, List<String>> suchkriterien) {
+        suchkriterien.forEach((kriterium, werte) -> {
+            if (!SUCHKRITERIEN.contains(kriterium)) {
+                throw new SuchkriteriumInvalidException(kriterium, "Unbekanntes Suchkriterium " + kriterium);
+            }
+            if (werte == null || werte.size() != 1) {
+                throw new SuchkriteriumInvalidException(kriterium, "Genau ein Wert fuer " + kriterium + " erwartet");
+            }
+            final var wert = werte.get(0);
+            try {
+                switch (kriterium) {
+                    case "gruendungsdatumVon", "gruendungsdatumBis" -> LocalDate.parse(wert);
+                    case "waehrung" -> Currency.getInstance(wert);
+                    case "umsatzMin", "umsatzMax" -> new BigDecimal(wert);
+                    default -> { }
+                }
+            } catch (final DateTimeParseException | IllegalArgumentException ex) {
+                throw new SuchkriteriumInvalidException(kriterium, "Ungueltiger Wert " + wert + " fuer " + kriterium);
+            }
+        });
+        final var mitBetrag = suchkriterien.containsKey("umsatzMin") || suchkriterien.containsKey("umsatzMax");
+        if (mitBetrag && !suchkriterien.containsKey("waehrung")) {
+            // Betraege in verschiedenen Waehrungen sind nicht vergleichbar
+            throw new SuchkriteriumInvalidException("waehrung", "umsatzMin und umsatzMax nur zusammen mit waehrung");
+        }
+    }
 }
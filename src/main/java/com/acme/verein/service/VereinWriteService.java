@@ -17,15 +17,43 @@
 package com.acme.verein.service;
 
 import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.Aenderung;
+import com.acme.verein.repository.Sortierung;
+import com.acme.verein.repository.VereinEventRepository;
 import com.acme.verein.repository.VereinRepository;
+import com.acme.verein.repository.VereinUebersicht;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+
+import static com.acme.verein.entity.EventTyp.CREATE;
+import static com.acme.verein.entity.EventTyp.UPDATE;
+import static com.acme.verein.repository.VereinRepository.EMAIL_CONSTRAINT;
+import static com.acme.verein.service.VereinReadService.VEREIN_CACHE;
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
 
 /**
  * Anwendungslogik für Vereine auch mit Bean Validation.
@@ -38,9 +66,30 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Slf4j
 public class VereinWriteService {
+    /**
+     * Anzahl der Vereine, die beim Neuanlegen mehrerer Vereine jeweils in einer eigenen Transaktion gespeichert werden.
+     */
+    public static final int BATCH_CHUNK_SIZE = 500;
+
+    /**
+     * Maximale Anzahl an Vereinen, die mit einem Request neu angelegt werden, damit ein einzelner Request nicht
+     * beliebig lange Transaktionen und beliebig viel Speicher beansprucht.
+     */
+    public static final int MAX_BATCH_SIZE = 20 * BATCH_CHUNK_SIZE;
+
+    // Meldung fuer einen zurueckgerollten Abschnitt ohne Details aus der DB
+    private static final String ABSCHNITT_FEHLGESCHLAGEN =
+        "Der Verein wurde nicht gespeichert, weil sein Abschnitt zurueckgerollt wurde";
+
     private final VereinRepository repo;
+    private final VereinEventRepository eventRepo;
     // https://docs.spring.io/spring-framework/docs/current/reference/html/core.html#validation-beanvalidation
     private final Validator validator;
+    private final NamenIndex namenIndex;
+    private final FacettenIndex facettenIndex;
+    private final EmailFilter emailFilter;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Einen neuen Vereine anlegen.
@@ -62,26 +111,194 @@ public class VereinWriteService {
             throw new ConstraintViolationsException(violations);
         }
 
-        final var vereinDB = repo.save(verein);
+        final var email = verein.getEmail();
+        if (emailVorhanden(email)) {
+            log.debug("create: email {} existiert", email);
+            throw new EmailExistsException(email);
+        }
+
+        final Verein vereinDB;
+        try {
+            // der Bloom-Filter kennt nur die Emailadressen dieser Instanz: eine von einer anderen Instanz angelegte
+            // Emailadresse wird erst beim Flush am Unique Constraint erkannt
+            vereinDB = repo.save(verein);
+            repo.flush();
+        } catch (final DataIntegrityViolationException ex) {
+            if (isEmailConstraint(ex)) {
+                log.debug("create: email {} existiert", email);
+                throw new EmailExistsException(email);
+            }
+            throw ex;
+        }
+        eventRepo.insertEvents(CREATE.name(), List.of(vereinDB.getId()));
+        final var facetten = FacettenIndex.Werte.of(vereinDB);
+        afterCommit(() -> {
+            emailFilter.add(email);
+            namenIndex.add(vereinDB.getName());
+            facettenIndex.add(facetten);
+        });
 
         log.debug("create: {}", vereinDB);
         return vereinDB;
     }
 
     /**
-     * Einen vorhandenen Vereine aktualisieren.
+     * Mehrere neue Vereine anlegen, z.B. beim Onboarding eines Verbands. Zunächst werden alle Vereine validiert.
+     * Die gültigen Vereine werden dann in Abschnitten von BATCH_CHUNK_SIZE in jeweils einer eigenen Transaktion
+     * gespeichert, so dass Hibernate die INSERT-Anweisungen per JDBC-Batching sendet. Scheitert ein Abschnitt in
+     * der DB, dann werden nur dessen Vereine als fehlerhaft gemeldet.
+     *
+     * @param vereine Die neu anzulegenden Vereine, höchstens MAX_BATCH_SIZE
+     * @return Ein Ergebnis pro Verein in derselben Reihenfolge, entweder mit der generierten ID oder mit Fehlern
+     * @throws BatchSizeInvalidException Falls es mehr als MAX_BATCH_SIZE Vereine sind
+     */
+    @Transactional(propagation = NOT_SUPPORTED)
+    public List<BatchResult> createMany(final List<Verein> vereine) {
+        log.debug("createMany: anzahl={}", vereine.size());
+        if (vereine.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeInvalidException(vereine.size(), MAX_BATCH_SIZE);
+        }
+
+        final var results = new BatchResult[vereine.size()];
+        final List<Integer> gueltig = new ArrayList<>(vereine.size());
+        final var emails = new HashSet<String>();
+        for (var i = 0; i < vereine.size(); i++) {
+            final var verein = vereine.get(i);
+            final var violations = validator.validate(verein);
+            if (!violations.isEmpty()) {
+                results[i] = BatchResult.fehler(i, toMessages(violations));
+            } else if (!emails.add(verein.getEmail())) {
+                results[i] = emailExists(i, verein.getEmail());
+            } else {
+                gueltig.add(i);
+            }
+        }
+        log.trace("createMany: gueltig={}", gueltig.size());
+
+        for (var von = 0; von < gueltig.size(); von += BATCH_CHUNK_SIZE) {
+            final var chunk = gueltig.subList(von, Math.min(von + BATCH_CHUNK_SIZE, gueltig.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> createChunk(vereine, chunk, results));
+            } catch (final DataAccessException | TransactionException ex) {
+                log.warn("createMany: Abschnitt ab Index {} fehlgeschlagen: {}", chunk.get(0), ex.getMessage());
+                // Meldungen der DB gehen nicht an den Client: eine gleichzeitig angelegte Emailadresse wird wie
+                // beim Neuanlegen eines einzelnen Vereins gemeldet, sonst gibt es eine allgemeine Meldung
+                final var emailKonflikt = ex instanceof final DataIntegrityViolationException integrityEx
+                    && isEmailConstraint(integrityEx);
+                final var vorhanden = emailKonflikt ? findVorhandeneEmails(vereine, chunk) : Set.<String>of();
+                final var fehler = List.of(ABSCHNITT_FEHLGESCHLAGEN);
+                // bereits gemeldete Fehler bleiben erhalten, die gespeicherten Vereine sind zurueckgerollt
+                chunk.stream()
+                    .filter(index -> results[index] == null || results[index].id() != null)
+                    .forEach(index -> {
+                        final var email = vereine.get(index).getEmail();
+                        results[index] = vorhanden.contains(email)
+                            ? emailExists(index, email)
+                            : BatchResult.fehler(index, fehler);
+                    });
+            }
+        }
+
+        final var resultList = Arrays.asList(results);
+        log.debug("createMany: {}", resultList);
+        return resultList;
+    }
+
+    private Set<String> findVorhandeneEmails(final List<Verein> vereine, final List<Integer> chunk) {
+        final var emails = chunk.stream()
+            .map(index -> vereine.get(index).getEmail())
+            .toList();
+        return new HashSet<>(repo.findVorhandeneEmails(emails));
+    }
+
+    private void createChunk(final List<Verein> vereine, final List<Integer> chunk, final BatchResult[] results) {
+        final var kandidaten = chunk.stream()
+            .map(index -> vereine.get(index).getEmail())
+            .filter(emailFilter::mightContain)
+            .toList();
+        final var vorhanden = kandidaten.isEmpty()
+            ? Set.<String>of()
+            : new HashSet<>(repo.findVorhandeneEmails(kandidaten));
+        final List<Verein> neu = new ArrayList<>(chunk.size());
+        for (final var index : chunk) {
+            final var verein = vereine.get(index);
+            if (vorhanden.contains(verein.getEmail())) {
+                results[index] = emailExists(index, verein.getEmail());
+            } else {
+                neu.add(verein);
+            }
+        }
+
+        repo.saveAll(neu);
+        if (!neu.isEmpty()) {
+            eventRepo.insertEvents(CREATE.name(), neu.stream().map(Verein::getId).toList());
+        }
+        final var facetten = neu.stream().map(FacettenIndex.Werte::of).toList();
+        afterCommit(() -> {
+            neu.forEach(verein -> {
+                emailFilter.add(verein.getEmail());
+                namenIndex.add(verein.getName());
+            });
+            facetten.forEach(facettenIndex::add);
+        });
+        for (final var index : chunk) {
+            if (results[index] == null) {
+                results[index] = BatchResult.ok(index, vereine.get(index).getId());
+            }
+        }
+    }
+
+    /**
+     * Abfrage, ob es die Emailadresse bereits gibt. Die DB wird nur abgefragt, wenn der Bloom-Filter die Emailadresse
+     * nicht ausschließen kann.
+     *
+     * @param email Die Emailadresse
+     * @return true, falls es die Emailadresse bereits gibt
+     */
+    private boolean emailVorhanden(final String email) {
+        if (!emailFilter.mightContain(email)) {
+            return false;
+        }
+        final var exists = repo.existsByEmail(email);
+        if (!exists) {
+            emailFilter.falschPositiv();
+        }
+        return exists;
+    }
+
+    private static BatchResult emailExists(final int index, final String email) {
+        return BatchResult.fehler(index, List.of(new EmailExistsException(email).getMessage()));
+    }
+
+    /**
+     * Verletzte Constraints in Fehlermeldungen umwandeln, z.B. für Ergebnisse pro Verein beim Neuanlegen oder Import.
+     *
+     * @param violations Die verletzten Constraints
+     * @return Die Fehlermeldungen mit dem jeweiligen Pfad
+     */
+    static List<String> toMessages(final Collection<ConstraintViolation<Verein>> violations) {
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .toList();
+    }
+
+    /**
+     * Einen vorhandenen Vereine aktualisieren. Die Änderung erfolgt mit einer einzigen UPDATE-Anweisung, die nur
+     * bei passender Version greift. Nur falls keine Zeile geändert wurde, wird die DB ein zweites Mal abgefragt, um
+     * eine fehlende ID von einer veralteten Version zu unterscheiden. Eine bereits vorhandene Emailadresse wird an
+     * der Verletzung des Unique Constraint erkannt.
      *
      * @param verein Das Objekt mit den neuen Daten (ohne ID)
      * @param id ID des zu aktualisierenden Vereine
      * @param version Die erforderliche Version
-     * @return Aktualisierter Verein mit erhöhter Versionsnummer
+     * @return Die erhöhte Versionsnummer
      * @throws ConstraintViolationsException Falls mindestens ein Constraint verletzt ist.
      * @throws NotFoundException Kein Verein zur ID vorhanden.
      * @throws VersionOutdatedException Die Versionsnummer ist veraltet und nicht aktuell.
      * @throws EmailExistsException Es gibt bereits einen Vereine mit der Emailadresse.
      */
     @Transactional
-    public Verein update(final Verein verein, final UUID id, final int version) {
+    public int update(final Verein verein, final UUID id, final int version) {
         log.debug("update: {}", verein);
         log.debug("update: id={}, version={}", id, version);
 
@@ -92,39 +309,236 @@ public class VereinWriteService {
         }
         log.trace("update: Keine Constraints verletzt");
 
-        final var vereinDbOptional = repo.findById(id);
-        if (vereinDbOptional.isEmpty()) {
+        final var email = verein.getEmail();
+        final var homepage = verein.getHomepage();
+        final Optional<Aenderung> aenderungOpt;
+        try {
+            aenderungOpt = repo.updateIfVersion(
+                id,
+                version,
+                verein.getName(),
+                email,
+                verein.getGruendungsdatum(),
+                homepage == null ? null : homepage.toString()
+            );
+        } catch (final DataIntegrityViolationException ex) {
+            if (isEmailConstraint(ex)) {
+                log.debug("update: email {} existiert", email);
+                throw new EmailExistsException(email);
+            }
+            throw ex;
+        }
+
+        if (aenderungOpt.isEmpty()) {
+            // nur im Fehlerfall ein zweiter DB-Zugriff
+            if (repo.existsById(id)) {
+                throw new VersionOutdatedException(version);
+            }
             throw new NotFoundException(id);
         }
 
-        var vereinDb = vereinDbOptional.get();
-        log.trace("update: version={}, vereinDb={}", version, vereinDb);
-        if (version != vereinDb.getVersion()) {
+        final var aenderung = aenderungOpt.get();
+        log.trace("update: {}", aenderung);
+        eventRepo.insertEvents(UPDATE.name(), List.of(id));
+        final var nameAlt = aenderung.getNameAlt();
+        final var nameNeu = verein.getName();
+        final var facettenAlt = FacettenIndex.Werte.of(aenderung.getGruendungsdatumAlt());
+        final var facettenNeu = FacettenIndex.Werte.of(verein.getGruendungsdatum());
+        afterCommit(() -> {
+            emailFilter.add(email);
+            evict(id);
+            facettenIndex.update(facettenAlt, facettenNeu);
+            if (!Objects.equals(nameAlt, nameNeu)) {
+                namenIndex.remove(nameAlt);
+                namenIndex.add(nameNeu);
+            }
+        });
+        log.debug("update: version={}", aenderung.getVersion());
+        return aenderung.getVersion();
+    }
+
+    /**
+     * Einen vorhandenen Vereine mit einzelnen Änderungen aktualisieren, z.B. aus einem JSON Merge Patch. Die
+     * Änderungen werden auf den gelesenen Verein angewendet und danach wie bei update validiert. Wegen
+     * "@DynamicUpdate" schreibt Hibernate nur die geänderten Spalten.
+     *
+     * @param id ID des zu aktualisierenden Vereine
+     * @param version Die erforderliche Version
+     * @param aenderungen Die Änderungen am Verein
+     * @return Die neue Versionsnummer, die ohne tatsächliche Änderung unverändert bleibt
+     * @throws ConstraintViolationsException Falls mindestens ein Constraint verletzt ist.
+     * @throws NotFoundException Kein Verein zur ID vorhanden.
+     * @throws VersionOutdatedException Die Versionsnummer ist veraltet und nicht aktuell.
+     * @throws EmailExistsException Es gibt bereits einen Vereine mit der Emailadresse.
+     */
+    @Transactional
+    public int patch(final UUID id, final int version, final Consumer<Verein> aenderungen) {
+        log.debug("patch: id={}, version={}", id, version);
+
+        final var verein = repo.findById(id).orElseThrow(() -> new NotFoundException(id));
+        if (version != verein.getVersion()) {
             throw new VersionOutdatedException(version);
         }
 
+        final var nameAlt = verein.getName();
+        // mit Ort und PLZ, weil ein Merge Patch auch die Adresse aendern kann
+        final var facettenAlt = FacettenIndex.Werte.of(verein);
+        aenderungen.accept(verein);
+        final var violations = validator.validate(verein);
+        if (!violations.isEmpty()) {
+            log.debug("patch: violations={}", violations);
+            // beim Rollback wird der geaenderte Verein nicht geschrieben
+            throw new ConstraintViolationsException(violations);
+        }
+
         final var email = verein.getEmail();
-        // Ist die neue E-Mail bei einem *ANDEREN* Vereine vorhanden?
-        if (!Objects.equals(email, vereinDb.getEmail()) && repo.existsByEmail(email)) {
-            log.debug("update: email {} existiert", email);
-            throw new EmailExistsException(email);
+        try {
+            // Flush, damit die Version erhoeht und eine vorhandene Emailadresse hier erkannt wird
+            repo.flush();
+        } catch (final DataIntegrityViolationException ex) {
+            if (isEmailConstraint(ex)) {
+                log.debug("patch: email {} existiert", email);
+                throw new EmailExistsException(email);
+            }
+            throw ex;
         }
-        log.trace("update: Kein Konflikt mit der Emailadresse");
 
-        vereinDb.set(verein);
-        vereinDb = repo.save(vereinDb);
-        log.debug("update: {}", vereinDb);
-        return vereinDb;
+        if (verein.getVersion() != version) {
+            // ohne tatsaechliche Aenderung gibt es kein UPDATE und kein Event
+            eventRepo.insertEvents(UPDATE.name(), List.of(id));
+        }
+        final var nameNeu = verein.getName();
+        final var facettenNeu = FacettenIndex.Werte.of(verein);
+        afterCommit(() -> {
+            emailFilter.add(email);
+            evict(id);
+            facettenIndex.update(facettenAlt, facettenNeu);
+            if (!Objects.equals(nameAlt, nameNeu)) {
+                namenIndex.remove(nameAlt);
+                namenIndex.add(nameNeu);
+            }
+        });
+        log.debug("patch: {}", verein);
+        return verein.getVersion();
+    }
+
+    private static boolean isEmailConstraint(final DataIntegrityViolationException ex) {
+        if (ex.getCause() instanceof final ConstraintViolationException cause) {
+            return EMAIL_CONSTRAINT.equals(cause.getConstraintName());
+        }
+        final var message = ex.getMostSpecificCause().getMessage();
+        return message != null && message.contains(EMAIL_CONSTRAINT);
     }
 
     /**
-     * Einen vorhandenen Vereine löschen.
+     * Einen vorhandenen Vereine löschen. Falls es keinen Verein zur ID gibt, wird nichts gemacht.
      *
      * @param id Die ID des zu löschenden Vereine.
      */
     @Transactional
     public void deleteById(final UUID id) {
         log.debug("deleteById: id={}", id);
-        repo.deleteById(id);
+        delete(List.of(id));
+    }
+
+    /**
+     * Mehrere Vereine in einer Transaktion löschen. Pro Abschnitt von BATCH_CHUNK_SIZE IDs wird eine einzige
+     * SQL-Anweisung ausgeführt, ohne die Vereine vorher zu laden. IDs ohne Verein werden ignoriert.
+     *
+     * @param ids Die IDs der zu löschenden Vereine
+     * @return Die Anzahl der gelöschten Vereine
+     */
+    @Transactional
+    public DeleteResult deleteByIds(final Collection<UUID> ids) {
+        log.debug("deleteByIds: anzahl={}", ids.size());
+        final var idList = List.copyOf(new HashSet<>(ids));
+        var result = DeleteResult.LEER;
+        for (var von = 0; von < idList.size(); von += BATCH_CHUNK_SIZE) {
+            result = result.plus(delete(idList.subList(von, Math.min(von + BATCH_CHUNK_SIZE, idList.size()))));
+        }
+        log.debug("deleteByIds: {}", result);
+        return result;
+    }
+
+    /**
+     * Alle Vereine zu Suchkriterien in einer Transaktion löschen. Die IDs werden abschnittsweise als Projektion
+     * gesucht und mengenorientiert gelöscht, bis kein Verein mehr gefunden wird.
+     *
+     * @param suchkriterien Die Suchkriterien wie bei der Suche, aber ohne Sortierung. Ohne Suchkriterien wird nichts
+     *      gelöscht.
+     * @return Die Anzahl der gelöschten Vereine
+     * @throws SuchkriteriumInvalidException Falls ein Suchkriterium ungültig ist oder keines angegeben ist
+     */
+    @Transactional
+    public DeleteResult deleteBySuchkriterien(final Map<String, List<String>> suchkriterien) {
+        log.debug("deleteBySuchkriterien: suchkriterien={}", suchkriterien);
+        if (suchkriterien.isEmpty()) {
+            // versehentliches Loeschen aller Vereine verhindern
+            throw new SuchkriteriumInvalidException("suchkriterien", "Mindestens ein Suchkriterium erforderlich");
+        }
+        VereinReadService.pruefe(suchkriterien);
+
+        var result = DeleteResult.LEER;
+        List<UUID> ids;
+        do {
+            // die bereits geloeschten Vereine werden in derselben Transaktion nicht mehr gefunden
+            ids = repo.findUebersicht(suchkriterien, Sortierung.NAME, null, null, BATCH_CHUNK_SIZE, Set.of())
+                .stream()
+                .map(VereinUebersicht::id)
+                .toList();
+            if (!ids.isEmpty()) {
+                result = result.plus(delete(ids));
+            }
+        } while (ids.size() == BATCH_CHUNK_SIZE);
+        log.debug("deleteBySuchkriterien: {}", result);
+        return result;
+    }
+
+    private DeleteResult delete(final List<UUID> ids) {
+        final var geloescht = repo.deleteMitEvent(ids);
+        log.trace("delete: geloescht={}", geloescht.size());
+        if (geloescht.isEmpty()) {
+            return DeleteResult.LEER;
+        }
+        afterCommit(() -> geloescht.forEach(verein -> {
+            evict(verein.getId());
+            namenIndex.remove(verein.getName());
+            facettenIndex.remove(
+                FacettenIndex.Werte.of(verein.getOrt(), verein.getPlz(), verein.getGruendungsdatum())
+            );
+        }));
+        return new DeleteResult(geloescht.size());
+    }
+
+    /**
+     * Einen Verein aus dem Cache entfernen. Das geschieht erst nach dem Commit, damit nicht ein paralleler Lesezugriff
+     * die alte Version erneut in den Cache schreibt.
+     *
+     * @param id Die ID des Vereins
+     */
+    private void evict(final UUID id) {
+        final var cache = cacheManager.getCache(VEREIN_CACHE);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Eine Aktion erst nach dem erfolgreichen Commit ausführen, z.B. um In-Memory-Strukturen zu aktualisieren.
+     * Bei einem Rollback wird die Aktion nicht ausgeführt.
+     *
+     * @param action Die auszuführende Aktion
+     */
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,25 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Trigramm-Index fuer die Suche nach Teilstrings und fuer die Aehnlichkeitssuche beim Namen.
+-- Ein B-Baum wie verein_name_idx kann bei LIKE '%...%' nicht verwendet werden.
+-- https://www.postgresql.org/docs/current/pgtrgm.html
+
+-- pg_trgm ist ab PostgreSQL 13 eine "trusted extension" und kann vom Owner der DB installiert werden
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- passend zu lower(v.name) LIKE ... sowie zum Operator % fuer die Aehnlichkeit
+CREATE INDEX IF NOT EXISTS verein_name_trgm_idx ON verein USING gin (lower(name) gin_trgm_ops)
+    TABLESPACE vereinspace;
@@ -0,0 +1,29 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Zusammengesetzte Indexe fuer Bereichssuche und Sortierung, damit eine Seite mit LIMIT direkt aus dem Index gelesen
+-- wird ("Top-N") statt alle Treffer im Hauptspeicher zu sortieren. Die ID als letzte Spalte macht das Keyset
+-- eindeutig. Ein B-Baum kann auch rueckwaerts gelesen werden, d.h. fuer ASC und DESC genuegt jeweils ein Index.
+-- https://www.postgresql.org/docs/current/indexes-ordering.html
+
+-- gruendungsdatumVon/gruendungsdatumBis und sort=gruendungsdatum bzw. sort=gruendungsdatum,desc
+CREATE INDEX IF NOT EXISTS verein_gruendungsdatum_idx ON verein(gruendungsdatum, id) TABLESPACE vereinspace;
+
+-- waehrung mit umsatzMin/umsatzMax: Gleichheit zuerst, dann der Bereich
+CREATE INDEX IF NOT EXISTS umsatz_waehrung_betrag_idx ON umsatz(waehrung, betrag) TABLESPACE vereinspace;
+
+-- Fremdschluessel fuer den Join von den gefundenen Umsaetzen bzw. Adressen zu den Vereinen
+CREATE INDEX IF NOT EXISTS verein_umsatz_id_idx ON verein(umsatz_id) TABLESPACE vereinspace;
+CREATE INDEX IF NOT EXISTS verein_adresse_id_idx ON verein(adresse_id) TABLESPACE vereinspace;
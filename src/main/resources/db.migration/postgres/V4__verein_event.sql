@@ -0,0 +1,34 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Transactional Outbox: Neuanlegen, Aendern und Loeschen eines Vereins werden in derselben Transaktion als Event
+-- gespeichert. Das Relay vergibt beim Veroeffentlichen die fortlaufende Position, die auch als Last-Event-ID bei
+-- Server-Sent Events dient. Die Position wird erst beim Veroeffentlichen vergeben, weil die IDs nicht in der
+-- Reihenfolge der Commits sichtbar werden.
+-- https://microservices.io/patterns/data/transactional-outbox.html
+CREATE TABLE IF NOT EXISTS verein_event (
+    id         bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY USING INDEX TABLESPACE vereinspace,
+               -- kein Fremdschluessel, weil Events zu geloeschten Vereinen erhalten bleiben
+    verein_id  uuid NOT NULL,
+    typ        varchar(6) NOT NULL CHECK (typ IN ('CREATE', 'UPDATE', 'DELETE')),
+               -- neue Version des Vereins, bei DELETE NULL
+    version    integer,
+               -- NULL, solange das Event nicht veroeffentlicht ist
+    position   bigint UNIQUE USING INDEX TABLESPACE vereinspace,
+    erzeugt    timestamp NOT NULL DEFAULT localtimestamp
+) TABLESPACE vereinspace;
+
+-- partieller Index: das Relay liest nur die wenigen noch nicht veroeffentlichten Events
+CREATE INDEX IF NOT EXISTS verein_event_offen_idx ON verein_event(id) TABLESPACE vereinspace WHERE position IS NULL;
@@ -0,0 +1,22 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Delta-Synchronisation: die seit einem Token geaenderten Vereine werden per Range-Scan in der Reihenfolge
+-- (aktualisiert, id) gelesen
+CREATE INDEX IF NOT EXISTS verein_aktualisiert_idx ON verein(aktualisiert, id) TABLESPACE vereinspace;
+
+-- Tombstones: die in einem Zeitraum geloeschten Vereine aus der Outbox
+CREATE INDEX IF NOT EXISTS verein_event_delete_idx ON verein_event(erzeugt) TABLESPACE vereinspace
+    WHERE typ = 'DELETE';
@@ -0,0 +1,46 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Adresse und Umsatz als Spalten von verein einbetten: Lesen ohne Join und Neuanlegen mit einem einzigen INSERT
+ALTER TABLE verein
+    ADD COLUMN plz      char(5) CHECK (plz ~ '\d{5}'),
+    ADD COLUMN ort      varchar(40),
+    ADD COLUMN betrag   decimal(10,2),
+    ADD COLUMN waehrung char(3) CHECK (waehrung ~ '[A-Z]{3}');
+
+-- vorhandene Daten mit einer einzigen Anweisung uebernehmen; ohne Umsatz bleiben betrag und waehrung NULL
+UPDATE verein v
+SET    plz = x.plz, ort = x.ort, betrag = x.betrag, waehrung = x.waehrung
+FROM   (SELECT    vv.id, a.plz, a.ort, u.betrag, u.waehrung
+        FROM      verein vv
+                  JOIN adresse a ON a.id = vv.adresse_id
+                  LEFT JOIN umsatz u ON u.id = vv.umsatz_id) x
+WHERE  v.id = x.id;
+
+ALTER TABLE verein
+    ALTER COLUMN plz SET NOT NULL,
+    ALTER COLUMN ort SET NOT NULL,
+    ADD CONSTRAINT verein_umsatz_check CHECK ((betrag IS NULL) = (waehrung IS NULL)),
+    -- entfernt auch die Fremdschluessel und die Indexe verein_adresse_id_idx und verein_umsatz_id_idx
+    DROP COLUMN adresse_id,
+    DROP COLUMN umsatz_id;
+
+DROP TABLE adresse;
+DROP TABLE umsatz;
+
+-- Suche nach PLZ-Praefix und Facette pro PLZ-Region wie bisher mit adresse_plz_idx
+CREATE INDEX IF NOT EXISTS verein_plz_idx ON verein(plz) TABLESPACE vereinspace;
+-- Suche nach Waehrung und Umsatzbereich
+CREATE INDEX IF NOT EXISTS verein_waehrung_betrag_idx ON verein(waehrung, betrag) TABLESPACE vereinspace;
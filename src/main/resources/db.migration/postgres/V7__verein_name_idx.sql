@@ -0,0 +1,19 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Keyset-Pagination mit ORDER BY name, id: die ID im Index macht die Position eindeutig, so dass eine Seite ohne
+-- Sortieren direkt aus dem Index gelesen wird
+DROP INDEX IF EXISTS verein_name_idx;
+CREATE INDEX verein_name_idx ON verein(name, id) TABLESPACE vereinspace;
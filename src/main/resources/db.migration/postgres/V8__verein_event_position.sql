@@ -0,0 +1,25 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Hoechste vergebene Position der Outbox als Marke, die nie sinkt: auch wenn die Bereinigung alle veroeffentlichten
+-- Events geloescht hat, werden die Positionen danach fortgesetzt statt wieder bei 1 zu beginnen. Nur so bleibt eine
+-- Last-Event-ID eindeutig und eine abgelaufene Last-Event-ID erkennbar.
+CREATE TABLE IF NOT EXISTS verein_event_position (
+    id        smallint DEFAULT 1 PRIMARY KEY USING INDEX TABLESPACE vereinspace CHECK (id = 1),
+    hoechste  bigint NOT NULL CHECK (hoechste >= 0)
+) TABLESPACE vereinspace;
+
+INSERT INTO verein_event_position (hoechste)
+SELECT coalesce(max(position), 0) FROM verein_event;